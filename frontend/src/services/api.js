@@ -29,6 +29,12 @@ export const authAPI = {
     return response.data
   },
 
+  // GET Credential Transport - Out: scheme and public key passwords are encrypted with (JSON)
+  getCredentialTransport: async () => {
+    const response = await api.get('/credential-transport')
+    return response.data
+  },
+
   // Ping - Check if backend is online
   ping: async () => {
     const response = await api.get('/ping')
@@ -69,9 +75,12 @@ export const adminAPI = {
     return response.data
   },
 
-  // GET View All Users - Header: admin token; In: username (optional filter); Out: user list (JSON)
-  viewUsers: async (username = '') => {
-    const params = username ? { username } : {}
+  // GET View All Users - Header: admin token; In: username (optional filter), after (cursor of the
+  // previous page); Out: one page of users (JSON) and nextCursor, null on the last page
+  viewUsers: async (username = '', after = null) => {
+    const params = {}
+    if (username) params.username = username
+    if (after) params.after = after
     const response = await api.get('/admin/user/getall', { params })
     return response.data
   },
@@ -1,60 +1,114 @@
-//import { KEYUTIL, KJUR } from 'jsrsasign'
+// KEYUTIL, KJUR and hextob64 come from the jsrsasign script in index.html
+import { authAPI } from '../services/api'
 
-// Public key for RSA encryption - must match the backend's public.key in application.properties
-const publicKeyPEM = `
------BEGIN PUBLIC KEY-----
-MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEArkOuYMSFFatZA+PhgW6cVMVBPBdePouwHMsZYmY1vndJLQcSPzsJywdB+N5uncfgZWhTKu7ByQy/DZnpRFiMpntUCLD2c0eOZH8rqzbT+eDtemKVSmFVfz8cuWcqPJz048nqtrnKHwz/IaJvjiyBCj2BWlNgu4EDLVmDbzQJHgqFlRYad1cPf5JM6IBfZSogAO5iVcAmBTa0jz5hGiVE74QhIzes0yNrpH7VOLrVpjJo5J5dUw8iRwDVTWeNat2T+tjeMgzrQjQML2ooPasLzkEy7Jgsh3oJoAs357nKlNRWXkFzR8WUFTv+IH2rr3Hilz7Mm1thizYA2Dp0KRbypwIDAQAB
------END PUBLIC KEY-----
-`;
+const X25519_INFO = new TextEncoder().encode('rocketpop credential v1')
+
+let transportPromise = null
+
+/**
+ * Get the password encryption scheme and public key advertised by the backend
+ * at /credential-transport. Fetched once, and again after a failed attempt.
+ * @returns {Promise<object>} Object with scheme (RSA or X25519) and publicKey
+ */
+export function getCredentialTransport() {
+  if (!transportPromise) {
+    transportPromise = authAPI.getCredentialTransport().catch((error) => {
+      transportPromise = null
+      throw error
+    })
+  }
+  return transportPromise
+}
 
 /**
- * Encrypt a password using RSA public key encryption
+ * Encrypt a password with the scheme the backend advertises
  * @param {string} username - The username
  * @param {string} password - The plain text password
- * @returns {object} Object containing username and encrypted password
+ * @returns {Promise<object>} Object containing username and encrypted password
  */
-export function encryptPassword(username, password) {
+export async function encryptPassword(username, password) {
   try {
-    console.log('Starting encryption...')
-    
-    // Parse the public key
-    const pub = KEYUTIL.getKey(publicKeyPEM)
-    console.log('Public key parsed successfully')
-
-    // Encrypt using PKCS#1 v1.5 padding (RSA)
-    // Using RSAKey.encrypt instead of KJUR.crypto.Cipher.encrypt
-    const encryptedHex = KJUR.crypto.Cipher.encrypt(password, pub, 'RSA')
-    console.log('Encrypted hex:', encryptedHex)
-    
-    // Convert hex to base64 for Java backend
-    const encryptedBase64 = hextob64(encryptedHex)
-    console.log('Encrypted base64:', encryptedBase64)
+    const transport = await getCredentialTransport()
+    const encrypted = transport.scheme === 'X25519'
+      ? await encryptX25519(password, transport.publicKey)
+      : encryptRsa(password, transport.publicKey)
 
     return {
       username: username,
-      password: encryptedBase64
+      password: encrypted
     }
   } catch (error) {
     console.error('Encryption error details:', error)
     console.error('Error message:', error.message)
-    console.error('Error stack:', error.stack)
     throw new Error('Failed to encrypt password')
   }
 }
 
 /**
- * Convert string to hex
- * @param {string} str - Input string
- * @returns {string} Hex encoded string
+ * RSA PKCS#1 v1.5 with the base64 X.509 public key, as base64
+ */
+function encryptRsa(password, publicKey) {
+  const pub = KEYUTIL.getKey(`-----BEGIN PUBLIC KEY-----\n${publicKey}\n-----END PUBLIC KEY-----`)
+  const encryptedHex = KJUR.crypto.Cipher.encrypt(password, pub, 'RSA')
+  // Convert hex to base64 for Java backend
+  return hextob64(encryptedHex)
+}
+
+/**
+ * Ephemeral X25519 agreement with the server key, HKDF-SHA256 and AES-256-GCM,
+ * in the format X25519CredentialTransport on the backend expects:
+ * x25519.<ephemeral key>.<nonce>.<ciphertext and tag>, all base64url
  */
-function stringToHex(str) {
-  let hex = ''
-  for (let i = 0; i < str.length; i++) {
-    const charCode = str.charCodeAt(i)
-    const hexValue = charCode.toString(16).padStart(2, '0')
-    hex += hexValue
+async function encryptX25519(password, publicKey) {
+  const subtle = window.crypto.subtle
+  const serverKey = base64UrlToBytes(publicKey)
+
+  const ephemeral = await subtle.generateKey({ name: 'X25519' }, true, ['deriveBits'])
+  const ephemeralKey = new Uint8Array(await subtle.exportKey('raw', ephemeral.publicKey))
+  const server = await subtle.importKey('raw', serverKey, { name: 'X25519' }, false, [])
+  const shared = await subtle.deriveBits({ name: 'X25519', public: server }, ephemeral.privateKey, 256)
+
+  // Salt is the ephemeral key followed by the server key
+  const salt = new Uint8Array(ephemeralKey.length + serverKey.length)
+  salt.set(ephemeralKey)
+  salt.set(serverKey, ephemeralKey.length)
+  const hkdfKey = await subtle.importKey('raw', shared, 'HKDF', false, ['deriveKey'])
+  const aesKey = await subtle.deriveKey(
+    { name: 'HKDF', hash: 'SHA-256', salt: salt, info: X25519_INFO },
+    hkdfKey,
+    { name: 'AES-GCM', length: 256 },
+    false,
+    ['encrypt']
+  )
+
+  const nonce = window.crypto.getRandomValues(new Uint8Array(12))
+  const sealed = await subtle.encrypt(
+    { name: 'AES-GCM', iv: nonce, additionalData: ephemeralKey, tagLength: 128 },
+    aesKey,
+    new TextEncoder().encode(password)
+  )
+
+  return 'x25519.' + bytesToBase64Url(ephemeralKey)
+    + '.' + bytesToBase64Url(nonce)
+    + '.' + bytesToBase64Url(new Uint8Array(sealed))
+}
+
+function base64UrlToBytes(value) {
+  const base64 = value.replace(/-/g, '+').replace(/_/g, '/')
+  const binary = atob(base64 + '='.repeat((4 - base64.length % 4) % 4))
+  const bytes = new Uint8Array(binary.length)
+  for (let i = 0; i < binary.length; i++) {
+    bytes[i] = binary.charCodeAt(i)
+  }
+  return bytes
+}
+
+function bytesToBase64Url(bytes) {
+  let binary = ''
+  for (let i = 0; i < bytes.length; i++) {
+    binary += String.fromCharCode(bytes[i])
   }
-  return hex
+  return btoa(binary).replace(/\+/g, '-').replace(/\//g, '_').replace(/=+$/, '')
 }
 
 /**
@@ -1,15 +1,21 @@
 package com.example.rocketpop.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -20,14 +26,23 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.UserPage;
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.service.RevocationService;
 import com.example.rocketpop.service.UserService;
+import com.example.rocketpop.util.CredentialTransports;
+import com.example.rocketpop.util.JWTUtil;
 import com.example.rocketpop.util.PasswordHasher;
+import com.example.rocketpop.util.UserExportWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.servlet.http.HttpServletResponse;
+
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
@@ -37,14 +52,29 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private RevocationService revocationService;
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
     private final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
     @Autowired
-    private final PasswordHasher passwordHasher = new PasswordHasher();
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private CredentialTransports credentialTransports;
+
+    @Value("${admin.users.page.default-limit:100}")
+    private int defaultPageSize;
+
+    @Value("${admin.users.page.max-limit:1000}")
+    private int maxPageSize;
 
     @PostMapping("/user/create")
     public ResponseEntity<?> createUser(
-            @RequestHeader("Authorization") String token,
+            VerifiedToken token,
             @RequestBody User userRequest) {
 
             logger.info("createUser called with username: {}", userRequest.getUsername());
@@ -58,14 +88,12 @@ public class AdminController {
                 }
 
                 // Create new user with 'user' or 'manager' role
-                String salt = passwordHasher.getRandomSalt();
-                String passwordHash = passwordHasher.hashPassword(
-                        passwordHasher.rsaDecrypt(userRequest.getPassword()),
-                        salt
+                String passwordHash = passwordHasher.encode(
+                        credentialTransports.decrypt(userRequest.getPassword())
                         );
 
                 userRequest.setPassword(passwordHash);
-                userRequest.setSalt(salt);
+                userRequest.setSalt("");
 
                 User newUser = userService.createUser(userRequest);
 
@@ -94,7 +122,7 @@ public class AdminController {
     
     @PostMapping("/adminuser/create")
     public ResponseEntity<?> createAdmin(
-            @RequestHeader("Authorization") String token,
+            VerifiedToken token,
             @RequestBody User userRequest) {
         try {
             // Validate admin token
@@ -105,12 +133,10 @@ public class AdminController {
             }
             
             // Create new admin user (internal SSO use only)
-            String salt = passwordHasher.getRandomSalt();
-            String passwordHash = passwordHasher.hashPassword(
-                    passwordHasher.rsaDecrypt(userRequest.getPassword()),
-                    salt
+            String passwordHash = passwordHasher.encode(
+                    credentialTransports.decrypt(userRequest.getPassword())
                     );
-            userRequest.setSalt(salt);
+            userRequest.setSalt("");
             userRequest.setPassword(passwordHash);
 
             User newAdmin = userService.createUser(userRequest);
@@ -138,7 +164,7 @@ public class AdminController {
     
     @PutMapping("/user/edit")
     public ResponseEntity<?> editUser(
-            @RequestHeader("Authorization") String token,
+            VerifiedToken token,
             @RequestBody User userRequest) {
         try {
             // Validate admin token
@@ -155,11 +181,11 @@ public class AdminController {
                 userRequest.setPassword(userService.getPasswordFromId(userRequest.getId())); 
                 logger.info("Password: {}", userRequest.getPassword());
             } else {
-                String passwordHash = passwordHasher.hashPassword(
-                        passwordHasher.rsaDecrypt(userRequest.getPassword()),
-                        salt
+                String passwordHash = passwordHasher.encode(
+                        credentialTransports.decrypt(userRequest.getPassword())
                         );
                 userRequest.setPassword(passwordHash);
+                userRequest.setSalt("");
             }
 
             logger.info("Updating user with id: {}", userRequest.getId());
@@ -190,7 +216,7 @@ public class AdminController {
     
     @PostMapping("/user/delete/{id}")
     public ResponseEntity<?> deleteUser(
-            @RequestHeader("Authorization") String token,
+            VerifiedToken token,
             @PathVariable String id) {
         try {
             // Validate admin token
@@ -226,15 +252,111 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+
+    /**
+     * Revoke a single token. The body holds either the token itself or its jti.
+     */
+    @PostMapping("/token/revoke")
+    public ResponseEntity<?> revokeToken(
+            VerifiedToken token,
+            @RequestBody Map<String, String> revokeRequest) {
+        try {
+            // Validate admin token
+            if (!userService.validateAdminToken(token)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized - Admin access required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+
+            String tokenId = revokeRequest.get("jti");
+            Date expiration = null;
+            if (revokeRequest.get("token") != null) {
+                VerifiedToken target = jwtUtil.verify(revokeRequest.get("token"));
+                if (target == null) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Token is invalid or already expired");
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+                }
+                if (target.getTokenId() == null) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Token has no jti, revoke the user instead");
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+                }
+                tokenId = target.getTokenId();
+                expiration = target.getExpiration();
+            }
+            if (tokenId == null || tokenId.isEmpty()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "token or jti is required");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+
+            revocationService.revokeToken(tokenId, expiration);
+
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Token revoked successfully");
+            response.put("jti", tokenId);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error revoking token", e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * Revoke every token issued to a user so far
+     */
+    @PostMapping("/user/revoke/{id}")
+    public ResponseEntity<?> revokeUser(
+            VerifiedToken token,
+            @PathVariable String id) {
+        try {
+            // Validate admin token
+            if (!userService.validateAdminToken(token)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized - Admin access required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+
+            revocationService.revokeUser(id);
+
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "User tokens revoked successfully");
+            response.put("id", id);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error revoking user tokens", e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
     
+    /**
+     * Users a page at a time, in id order, or in username order when
+     * searching by username. limit defaults to admin.users.page.default-limit
+     * and is capped at admin.users.page.max-limit; the response holds the
+     * users, and a next link and nextCursor while there are more. unpaged=true
+     * returns every matching user as a bare list instead, as this endpoint
+     * used to, streamed as the rows are read.
+     */
     @GetMapping("/user/getall")
     public ResponseEntity<?> getAllUsers(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @RequestParam(required = false) String username) {
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @Nullable VerifiedToken token,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean unpaged,
+            HttpServletResponse response) {
         try {
             LOGGER.info("getAllUsers called with username filter: {}", username);
             
-            if (token == null || token.isEmpty()) {
+            if (authorization == null || authorization.isEmpty()) {
                 LOGGER.error("No authorization token provided");
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "No authorization token provided");
@@ -250,55 +372,158 @@ public class AdminController {
                 error.put("message", "Invalid or non-admin token");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
-            
-            // Get users (filtered by username if provided)
-            List<User> users;
-            if (username != null && !username.isEmpty()) {
-                LOGGER.info("Searching users with username: {}", username);
-                users = userService.searchUsers(username);
-            } else {
-                LOGGER.info("Getting all users");
-                users = userService.getAllUsers();
+
+            if (!unpaged) {
+                return getUsersPage(username, limit, after);
             }
-            
-            LOGGER.info("Found {} users", users.size());
-            
-            // Convert to response format
-            List<Map<String, Object>> response = users.stream().map(user -> {
-                Map<String, Object> userMap = new HashMap<>();
-                // json the object
-                userMap.put("id", user.getId()); // json the object
-                userMap.put("firstName", user.getFirstName());
-                userMap.put("lastName", user.getLastName());
-                userMap.put("title", user.getTitle());
-                userMap.put("department", user.getDepartment());
-                userMap.put("email", user.getEmail());
-                userMap.put("country", user.getCountry());
-                userMap.put("city", user.getCity());
-                userMap.put("location", user.getLocation());
-                userMap.put("username", user.getUsername());
-
-                return userMap;
-            }).collect(Collectors.toList());
-            
-            return ResponseEntity.ok(response);
+
+            LOGGER.info("Streaming users with username filter: {}", username);
+            writeUsers(username, UserExportWriter.Format.JSON, response);
+            return null;
             
         } catch (Exception e) {
             LOGGER.error("Error getting all users", e);
+            if (response.isCommitted()) {
+                // Part of the list is already sent, cut the response short rather than append an error to it
+                throw new IllegalStateException("User listing failed part way", e);
+            }
+            response.reset();
             Map<String, String> error = new HashMap<>();
             error.put("error", "Internal server error: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+
+    /**
+     * Every user, or those whose username contains the text, written out as
+     * they are read rather than collected first, so the export takes the
+     * same memory at any directory size. format is json (an array of the
+     * getall fields, the default), ndjson or csv.
+     */
+    @GetMapping("/user/export")
+    public ResponseEntity<?> exportUsers(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @Nullable VerifiedToken token,
+            @RequestParam(required = false) String username,
+            @RequestParam(defaultValue = "json") String format,
+            HttpServletResponse response) {
+        try {
+            LOGGER.info("exportUsers called with username filter: {}, format: {}", username, format);
+
+            if (authorization == null || authorization.isEmpty()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "No authorization token provided");
+                error.put("message", "Authorization header is missing");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+
+            // Validate admin token
+            if (!userService.validateAdminToken(token)) {
+                LOGGER.error("Unauthorized access attempt to exportUsers - invalid token");
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Unauthorized - Admin access required");
+                error.put("message", "Invalid or non-admin token");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+
+            UserExportWriter.Format exportFormat;
+            try {
+                exportFormat = UserExportWriter.Format.parse(format);
+            } catch (IllegalArgumentException e) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getExtension() + "\"");
+            writeUsers(username, exportFormat, response);
+            return null;
+
+        } catch (Exception e) {
+            LOGGER.error("Error exporting users", e);
+            if (response.isCommitted()) {
+                // Part of the export is already sent, cut the response short rather than append an error to it
+                throw new IllegalStateException("User export failed part way", e);
+            }
+            response.reset();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * Write the users to the response as they are read. The document is only
+     * finished once every row is written, so a failure part way leaves it
+     * visibly incomplete rather than a shorter list that looks whole.
+     */
+    private void writeUsers(String username, UserExportWriter.Format format, HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        UserExportWriter writer = UserExportWriter.open(format, response.getOutputStream());
+        userService.forEachUser(username, user -> {
+            try {
+                writer.write(user);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.close();
+    }
+
+    private ResponseEntity<?> getUsersPage(String username, Integer limit, String after) {
+        int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+        if (pageSize < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "limit must be at least 1");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+
+        UserPage page;
+        try {
+            page = userService.getUsersPage(username, after, pageSize);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        LOGGER.info("Found {} users", page.users().size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("users", page.users().stream().map(this::toListing).collect(Collectors.toList()));
+        response.put("nextCursor", page.nextCursor());
+        response.put("next", page.nextCursor() == null ? null : ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", pageSize)
+                .replaceQueryParam("after", page.nextCursor())
+                .build()
+                .toUriString());
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> toListing(User user) {
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("id", user.getId());
+        userMap.put("firstName", user.getFirstName());
+        userMap.put("lastName", user.getLastName());
+        userMap.put("title", user.getTitle());
+        userMap.put("department", user.getDepartment());
+        userMap.put("email", user.getEmail());
+        userMap.put("country", user.getCountry());
+        userMap.put("city", user.getCity());
+        userMap.put("location", user.getLocation());
+        userMap.put("username", user.getUsername());
+        return userMap;
+    }
     
     @GetMapping("/user/get/{username}")
     public ResponseEntity<?> getUser(
-            @RequestHeader(value = "Authorization", required = false) String token,
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @Nullable VerifiedToken token,
             @PathVariable String username) {
         try {
             LOGGER.info("getUser called for username: {}", username);
             
-            if (token == null || token.isEmpty()) {
+            if (authorization == null || authorization.isEmpty()) {
                 LOGGER.error("No authorization token provided");
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "No authorization token provided");
@@ -316,7 +541,7 @@ public class AdminController {
             }
             
             // Get specific user
-            User user = userService.getUserByUsername(username);
+            User user = userService.findUserByUsername(username).orElse(null);
             
             if (user == null) {
                 LOGGER.warn("User not found: {}", username);
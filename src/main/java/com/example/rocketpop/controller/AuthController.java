@@ -2,9 +2,14 @@ package com.example.rocketpop.controller;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
-import com.example.rocketpop.util.PasswordHasher;
+import com.example.rocketpop.model.AuthResult;
+import com.example.rocketpop.util.CredentialTransports;
+import com.example.rocketpop.util.HashingExecutor;
+import com.example.rocketpop.util.LoginThrottle;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,6 +21,8 @@ import com.example.rocketpop.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/")
 public class AuthController {
@@ -25,7 +32,13 @@ public class AuthController {
     private UserService userService;
 
     @Autowired
-    private PasswordHasher passwordHasher;
+    private CredentialTransports credentialTransports;
+
+    @Autowired
+    private HashingExecutor hashingExecutor;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
 
     @GetMapping("/ping")
     public ResponseEntity<?> ping() {
@@ -36,47 +49,82 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Tells the frontend how to encrypt passwords: the active scheme and its public key
+     */
+    @GetMapping("/credential-transport")
+    public ResponseEntity<?> credentialTransport() {
+        return ResponseEntity.ok(credentialTransports.describe());
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        LOGGER.info("login called with username: {}, password: {}", loginRequest.getUsername(), loginRequest.getPassword());
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        LOGGER.info("login called with username: {}", loginRequest.getUsername());
         try {
-            String userSalt = userService.getUserSalt(loginRequest.getUsername());
-            if (userSalt == null) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Invalid username");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            String address = request.getRemoteAddr();
+            // Throttled attempts are refused before any decryption, hashing or database work
+            long retryAfterSeconds = loginThrottle.acquire(loginRequest.getUsername(), address);
+            AuthResult result;
+            if (retryAfterSeconds > 0) {
+                result = new AuthResult.Locked(retryAfterSeconds);
+            } else if (!userService.mightExist(loginRequest.getUsername())) {
+                // Unknown usernames are refused before any decryption or hashing
+                result = AuthResult.UNKNOWN_USER;
+                loginThrottle.record(loginRequest.getUsername(), address, result);
+            } else {
+                // Only decrypting and hashing go to the bounded hashing pool, the lookup,
+                // any rehash UPDATE and the token stay on the request thread
+                result = userService.authenticate(loginRequest.getUsername(), user -> hashingExecutor.call(
+                        () -> userService.checkPassword(credentialTransports.decrypt(loginRequest.getPassword()), user)
+                ));
+                loginThrottle.record(loginRequest.getUsername(), address, result);
             }
-            String passwordHash = passwordHasher.hashPassword(
-                    passwordHasher.rsaDecrypt(loginRequest.getPassword()),
-                    userSalt
-            );
-            // Authenticate user and generate JWT token
-            String token = userService.authenticateUser(
-                    loginRequest.getUsername(),
-                    passwordHash
-            );
 
-            LOGGER.info("login successful");
-
-            Map<String, String> response = new HashMap<>();
-            response.put("token", token);
-            response.put("message", "Login successful");
-
-            return ResponseEntity.ok(response);
+            switch (result) {
+                case AuthResult.Success success -> {
+                    LOGGER.info("login successful");
+                    Map<String, String> response = new HashMap<>();
+                    response.put("token", success.token());
+                    response.put("message", "Login successful");
+                    return ResponseEntity.ok(response);
+                }
+                case AuthResult.UnknownUser unknown -> {
+                    return loginFailed(HttpStatus.UNAUTHORIZED, "Invalid username");
+                }
+                case AuthResult.BadPassword badPassword -> {
+                    return loginFailed(HttpStatus.UNAUTHORIZED, "Invalid password");
+                }
+                case AuthResult.Locked locked -> {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Too many failed login attempts, try again later");
+                    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                            .header(HttpHeaders.RETRY_AFTER, Long.toString(locked.retryAfterSeconds()))
+                            .body(error);
+                }
+            }
 
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("login rejected, credential hashing queue is full");
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Too many login attempts in progress, try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Integer.toString(hashingExecutor.getRetryAfterSeconds()))
+                    .body(error);
         } catch (Exception e) {
             LOGGER.error("login failed: {}", e.getMessage());
             Map<String, String> error = new HashMap<>();
-            String userSalt = userService.getUserSalt(loginRequest.getUsername());
-            if (userSalt == null) {
-                error.put("error", "Invalid username");
-            } else {
-                error.put("error", e.getMessage());
-            }
+            error.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
         }
     }
 
+    private ResponseEntity<?> loginFailed(HttpStatus status, String message) {
+        LOGGER.info("login failed: {}", message);
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+
     // Inner class for login request
     public static class LoginRequest {
         private String username;
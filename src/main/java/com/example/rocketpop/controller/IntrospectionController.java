@@ -0,0 +1,190 @@
+package com.example.rocketpop.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.service.IntrospectionService;
+import com.example.rocketpop.service.UserService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Batch token introspection for gateways. A JSON body {"tokens": [...]} gets
+ * one JSON response with a result per token, in order. For batches larger
+ * than introspection.batch.max-tokens, send application/x-ndjson with one
+ * token per line; results are streamed back one JSON object per line as
+ * each chunk is verified, so neither side holds the whole batch, up to
+ * introspection.stream.max-tokens in all.
+ *
+ * Only an admin token in Authorization, or introspection.client-secret in
+ * the Introspection-Secret header, gets real answers, as RFC 7662 asks.
+ * Anyone else gets {"active": false} for every token.
+ */
+@RestController
+@RequestMapping("/auth/introspect")
+public class IntrospectionController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntrospectionController.class);
+
+    static final String NDJSON = "application/x-ndjson";
+    static final String SECRET_HEADER = "Introspection-Secret";
+
+    private static final Map<String, Object> INACTIVE = Map.of("active", false);
+
+    // Tokens read from a stream before they are verified and written out
+    static final int STREAM_CHUNK_SIZE = 256;
+
+    @Autowired
+    private IntrospectionService introspectionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Value("${introspection.batch.max-tokens:1000}")
+    private int maxTokens;
+
+    @Value("${introspection.stream.max-tokens:100000}")
+    private int maxStreamTokens;
+
+    @Value("${introspection.client-secret:}")
+    private String clientSecret;
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> introspectBatch(
+            @Nullable VerifiedToken token,
+            @RequestHeader(value = SECRET_HEADER, required = false) String secret,
+            @RequestBody IntrospectRequest introspectRequest) {
+        List<String> tokens = introspectRequest.getTokens();
+        if (tokens == null || tokens.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "tokens is required");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        if (tokens.size() > maxTokens) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "At most " + maxTokens + " tokens per batch, use " + NDJSON + " for larger batches");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
+        }
+        LOGGER.info("introspectBatch called with {} tokens", tokens.size());
+
+        Map<String, Object> response = new HashMap<>();
+        if (isAuthorized(token, secret)) {
+            response.put("results", introspectionService.introspect(tokens));
+        } else {
+            LOGGER.warn("introspectBatch called without admin token or client secret");
+            response.put("results", Collections.nCopies(tokens.size(), INACTIVE));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/batch", consumes = NDJSON, produces = NDJSON)
+    public void introspectStream(
+            @Nullable VerifiedToken token,
+            @RequestHeader(value = SECRET_HEADER, required = false) String secret,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean authorized = isAuthorized(token, secret);
+        if (!authorized) {
+            LOGGER.warn("introspectStream called without admin token or client secret");
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        List<String> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        int index = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (index + chunk.size() == maxStreamTokens) {
+                // Results so far have gone out, so the limit can only be reported as a last line
+                if (!chunk.isEmpty()) {
+                    index = writeChunk(chunk, index, authorized, out);
+                }
+                JSONObject error = new JSONObject();
+                error.put("error", "At most " + maxStreamTokens + " tokens per stream");
+                out.write((error + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                LOGGER.warn("introspectStream stopped at {} tokens", index);
+                return;
+            }
+            chunk.add(line);
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                index = writeChunk(chunk, index, authorized, out);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            index = writeChunk(chunk, index, authorized, out);
+        }
+        LOGGER.info("introspectStream answered {} tokens", index);
+    }
+
+    /**
+     * An unrevoked admin token, or the configured client secret. With no
+     * secret configured only admin tokens are accepted.
+     */
+    private boolean isAuthorized(VerifiedToken token, String secret) {
+        if (userService.validateAdminToken(token)) {
+            return true;
+        }
+        return secret != null && !clientSecret.isEmpty()
+                && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), clientSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int writeChunk(List<String> chunk, int index, boolean authorized, OutputStream out) throws IOException {
+        List<Map<String, Object>> results = authorized
+                ? introspectionService.introspect(chunk)
+                : Collections.nCopies(chunk.size(), INACTIVE);
+        StringBuilder lines = new StringBuilder(results.size() * 256);
+        for (Map<String, Object> result : results) {
+            JSONObject json = new JSONObject(result);
+            json.put("index", index++);
+            lines.append(json).append('\n');
+        }
+        out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        chunk.clear();
+        return index;
+    }
+
+    // Inner class for introspect request
+    public static class IntrospectRequest {
+        private List<String> tokens;
+
+        public List<String> getTokens() {
+            return tokens;
+        }
+
+        public void setTokens(List<String> tokens) {
+            this.tokens = tokens;
+        }
+    }
+}
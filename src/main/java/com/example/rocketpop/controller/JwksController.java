@@ -0,0 +1,48 @@
+package com.example.rocketpop.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.example.rocketpop.util.JwtKeyring;
+
+/**
+ * Publishes the public keys for user tokens so relying apps can verify them
+ * locally instead of calling back into the SSO service. Only populated when
+ * jwt.user.algorithm=ES256, HS256 keys are never published.
+ */
+@RestController
+public class JwksController {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+
+    @Autowired
+    private JwtKeyring keyring;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<?> getJwks(WebRequest request) {
+        String etag = keyring.getJwksETag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CACHE_CONTROL)
+                    .build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("keys", keyring.getJwks());
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .body(response);
+    }
+}
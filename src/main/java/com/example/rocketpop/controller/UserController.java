@@ -11,11 +11,11 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.VerifiedToken;
 import com.example.rocketpop.service.UserService;
 import com.example.rocketpop.util.PasswordHasher;
 
@@ -33,10 +33,10 @@ public class UserController {
 
 
     @Autowired
-    private final PasswordHasher passwordHasher = new PasswordHasher();
+    private PasswordHasher passwordHasher;
 
     @GetMapping("/info")
-    public ResponseEntity<?> getSelf(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getSelf(VerifiedToken token) {
         try {
             // Validate token
             if (!userService.validateUserToken(token)) {
@@ -45,8 +45,13 @@ public class UserController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
             
-            // Get user information from token
-            User user = userService.getUserFromToken(token.replace("Bearer ", ""));
+            // The token can outlive its user
+            User user = userService.findUserById(token.getId()).orElse(null);
+            if (user == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "User not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("username", user.getUsername());
@@ -66,10 +71,10 @@ public class UserController {
     
     @PostMapping("/updatepassword")
     public ResponseEntity<?> changePassword(
-            @RequestHeader("Authorization") String token,
+            VerifiedToken token,
             @RequestBody PasswordChangeRequest passwordChangeRequest) {
 
-            LOGGER.info("changePassword called with token: " + token);
+            LOGGER.info("changePassword called");
         try {
             // Validate token
             if (!userService.validateUserToken(token)) {
@@ -87,9 +92,14 @@ public class UserController {
             }
             
             // Get user from token and update password
-            User user = userService.getUserFromToken(token.replace("Bearer ", ""));
+            User user = userService.findUserById(token.getId()).orElse(null);
+            if (user == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "User not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+            }
 
-            String newPasswordHash = passwordHasher.hashPassword(passwordChangeRequest.getNewPassword(), user.getSalt());
+            String newPasswordHash = passwordHasher.encode(passwordChangeRequest.getNewPassword());
             userService.updatePassword(
                 user.getUsername(), 
                 user.getPassword(),
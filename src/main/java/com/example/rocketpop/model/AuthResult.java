@@ -0,0 +1,34 @@
+package com.example.rocketpop.model;
+
+/**
+ * Outcome of a login attempt. Failures are ordinary return values rather
+ * than exceptions: under brute force traffic most attempts fail, and a
+ * thrown exception pays for a stack trace every time.
+ */
+public sealed interface AuthResult
+        permits AuthResult.Success, AuthResult.UnknownUser, AuthResult.BadPassword, AuthResult.Locked {
+
+    /**
+     * Password matched; token is the signed JWT for the user's title
+     */
+    record Success(User user, String token) implements AuthResult {}
+
+    /**
+     * No user has that username
+     */
+    record UnknownUser() implements AuthResult {}
+
+    /**
+     * The user exists but the password did not match
+     */
+    record BadPassword() implements AuthResult {}
+
+    /**
+     * Attempt refused without checking the password, retry after the given number of seconds
+     */
+    record Locked(long retryAfterSeconds) implements AuthResult {}
+
+    // Failures carry no state, so one instance of each is shared
+    UnknownUser UNKNOWN_USER = new UnknownUser();
+    BadPassword BAD_PASSWORD = new BadPassword();
+}
@@ -26,6 +26,22 @@ public class User {
         this.salt = salt;
     }
 
+    // Copy, so a cached user can be handed out without callers changing the cached one
+    public User(User other) {
+        this.id = other.id;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.title = other.title;
+        this.department = other.department;
+        this.email = other.email;
+        this.country = other.country;
+        this.city = other.city;
+        this.location = other.location;
+        this.userName = other.userName;
+        this.password = other.password;
+        this.salt = other.salt;
+    }
+
     // getters
     public int getId() { return id; }
     public String getFirstName() { return firstName; }
@@ -0,0 +1,9 @@
+package com.example.rocketpop.model;
+
+import java.util.List;
+
+/**
+ * One page of a user listing. nextCursor is passed back as after to get the
+ * page that follows, and is null on the last page.
+ */
+public record UserPage(List<User> users, String nextCursor) {}
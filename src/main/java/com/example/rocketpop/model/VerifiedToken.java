@@ -0,0 +1,60 @@
+package com.example.rocketpop.model;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * A token whose signature and expiry have already been checked. One is built
+ * per request by VerifiedTokenFilter and handed to controllers, so the same
+ * token is never parsed twice.
+ */
+public final class VerifiedToken {
+
+    /** Request attribute the verified token is stored under */
+    public static final String ATTRIBUTE = VerifiedToken.class.getName();
+
+    public enum Role { USER, ADMIN }
+
+    private final Claims claims;
+    private final Role role;
+    private final String keyId;
+
+    public VerifiedToken(Claims claims, Role role, String keyId) {
+        this.claims = claims;
+        this.role = role;
+        this.keyId = keyId;
+    }
+
+    public Claims getClaims() { return claims; }
+    public Role getRole() { return role; }
+    public String getKeyId() { return keyId; }
+    public Date getExpiration() { return claims.getExpiration(); }
+    public Date getIssuedAt() { return claims.getIssuedAt(); }
+
+    /**
+     * Get the jti claim, null for tokens minted before tokens had one
+     */
+    public String getTokenId() {
+        return claims.getId();
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    /**
+     * Get the user id claim
+     */
+    public String getId() {
+        Object id = claims.get("id");
+        return id != null ? id.toString() : null;
+    }
+
+    /**
+     * Get the title claim
+     */
+    public String getTitle() {
+        return (String) claims.get("title");
+    }
+}
@@ -0,0 +1,464 @@
+package com.example.rocketpop.repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import com.example.rocketpop.model.User;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Read-through cache of user rows in front of UserDatabase. Single user
+ * reads by username or id (getUser, getUserById, getCredentials, and the
+ * salt and password of a cached user) are answered from memory; everything
+ * else goes straight through.
+ *
+ * Entries are held by id in segments, each an access ordered LinkedHashMap
+ * behind its own lock, evicted least recently used first and dropped after
+ * the TTL. A second map from lower cased username to id finds them by name;
+ * an entry is only returned if its username matches the one asked for
+ * exactly, so case sensitivity is still decided by the database.
+ *
+ * Every write through this class drops the entries it can affect once the
+ * database has it, so later reads on this node see it. A read that loaded
+ * its row while any write was in progress does not cache it, since the row
+ * may be from before the write. Writes on other instances, or made through
+ * UserDatabase directly, are only seen once the entry expires.
+ *
+ * Misses for the same username or id are coalesced with SingleFlight, so a
+ * burst of lookups for one account waits on a single query rather than
+ * sending one each. A caller only joins a load that started after the last
+ * write through this class, so coalescing never hands out a row older than
+ * that write either.
+ */
+@Repository
+@Primary
+public class CachingUserDatabase implements Database, MeterBinder {
+
+    private static final int SEGMENTS = 16;
+
+    private final UserDatabase delegate;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final ConcurrentHashMap<String, Integer> idsByUsername = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation, a load only caches its row if this has not moved since it started
+    private final AtomicLong generation = new AtomicLong();
+
+    private final SingleFlight<LoadKey, User> loads;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public CachingUserDatabase(UserDatabase delegate,
+                               @Value("${users.cache.max-entries:10000}") int maxEntries,
+                               @Value("${users.cache.ttl-seconds:30}") long ttlSeconds,
+                               @Value("${users.coalesce.timeout-millis:5000}") long coalesceTimeoutMillis) {
+        this(delegate, maxEntries, ttlSeconds, coalesceTimeoutMillis, System::nanoTime);
+    }
+
+    CachingUserDatabase(UserDatabase delegate, int maxEntries, long ttlSeconds, long coalesceTimeoutMillis, LongSupplier clock) {
+        this.delegate = delegate;
+        this.loads = new SingleFlight<>(coalesceTimeoutMillis);
+        this.enabled = maxEntries > 0 && ttlSeconds > 0;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.clock = clock;
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    @Override
+    public User getUser(String username) {
+        User cached = cachedByUsername(username);
+        if (cached != null) {
+            return cached;
+        }
+        return load(new LoadKey(false, username, generation.get()), () -> delegate.getUser(username));
+    }
+
+    @Override
+    public User getUserById(String id) {
+        Integer key = parseId(id);
+        if (key == null) {
+            return delegate.getUserById(id);
+        }
+        User cached = cachedById(key);
+        if (cached != null) {
+            return cached;
+        }
+        return load(new LoadKey(true, key.toString(), generation.get()), () -> delegate.getUserById(id));
+    }
+
+    /**
+     * A cached user has every column, so is returned whole. On a miss the
+     * full row is loaded, rather than the credentials projection, so the
+     * next lookup of any kind can use it.
+     */
+    @Override
+    public User getCredentials(String username) {
+        if (!enabled) {
+            return delegate.getCredentials(username);
+        }
+        return getUser(username);
+    }
+
+    @Override
+    public String getUserSalt(String username) {
+        User cached = cachedByUsername(username);
+        return cached != null ? cached.getSalt() : delegate.getUserSalt(username);
+    }
+
+    @Override
+    public String getPassword(int id) {
+        User cached = cachedById(id);
+        return cached != null ? cached.getPassword() : delegate.getPassword(id);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> searchUsers(String username) {
+        return delegate.searchUsers(username);
+    }
+
+    @Override
+    public List<User> getUsersAfterId(int afterId, int limit) {
+        return delegate.getUsersAfterId(afterId, limit);
+    }
+
+    @Override
+    public List<User> searchUsersAfter(String username, String afterUsername, int limit) {
+        return delegate.searchUsersAfter(username, afterUsername, limit);
+    }
+
+    @Override
+    public void forEachUser(String username, Consumer<User> action) {
+        delegate.forEachUser(username, action);
+    }
+
+    @Override
+    public List<String> getUsernames() {
+        return delegate.getUsernames();
+    }
+
+    @Override
+    public boolean userExists(String username) {
+        return delegate.userExists(username);
+    }
+
+    @Override
+    public boolean mightExist(String username) {
+        return delegate.mightExist(username);
+    }
+
+    @Override
+    public boolean createUser(User user) {
+        boolean created = delegate.createUser(user);
+        // Nothing can be cached for a new id, only a stale name mapping
+        invalidateUsernameMapping(user.getUsername());
+        return created;
+    }
+
+    @Override
+    public boolean updateUser(User user) {
+        boolean updated = delegate.updateUser(user);
+        invalidateId(user.getId());
+        invalidateUsernameMapping(user.getUsername());
+        return updated;
+    }
+
+    @Override
+    public boolean updatePasswordHash(int id, String password, String salt) {
+        boolean updated = delegate.updatePasswordHash(id, password, salt);
+        invalidateId(id);
+        return updated;
+    }
+
+    @Override
+    public boolean deleteUser(int id) {
+        boolean deleted = delegate.deleteUser(id);
+        invalidateId(id);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteUserByUsername(String username) {
+        boolean deleted = delegate.deleteUserByUsername(username);
+        invalidateUsername(username);
+        return deleted;
+    }
+
+    @Override
+    public int deleteAllUsers() {
+        int count = delegate.deleteAllUsers();
+        invalidateAll();
+        return count;
+    }
+
+    /**
+     * Drop every cached user
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.clearAll();
+        }
+        idsByUsername.clear();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count();
+        }
+        return size;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getCoalescedLoads() { return loads.getLoads(); }
+    public long getCoalescedJoins() { return loads.getJoins(); }
+    public long getCoalesceTimeouts() { return loads.getTimeouts(); }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("users.cache.hits", this, CachingUserDatabase::getHits).register(registry);
+        FunctionCounter.builder("users.cache.misses", this, CachingUserDatabase::getMisses).register(registry);
+        FunctionCounter.builder("users.cache.evictions", this, CachingUserDatabase::getEvictions).register(registry);
+        Gauge.builder("users.cache.size", this, CachingUserDatabase::size).register(registry);
+        Gauge.builder("users.cache.hit-ratio", this, CachingUserDatabase::getHitRatio)
+                .description("Share of single user reads answered without a query, since startup")
+                .register(registry);
+        FunctionCounter.builder("users.coalesce.loads", this, CachingUserDatabase::getCoalescedLoads)
+                .description("Single user queries sent after a cache miss")
+                .register(registry);
+        FunctionCounter.builder("users.coalesce.joins", this, CachingUserDatabase::getCoalescedJoins)
+                .description("Cache misses answered by a query another caller already had running")
+                .register(registry);
+        FunctionCounter.builder("users.coalesce.timeouts", this, CachingUserDatabase::getCoalesceTimeouts).register(registry);
+    }
+
+    /**
+     * Load on a miss, sharing the query with concurrent misses for the same
+     * key. The caller that runs it caches the row; everyone gets their own copy.
+     */
+    private User load(LoadKey key, Supplier<User> loader) {
+        User user = loads.load(key, () -> {
+            User loaded = loader.get();
+            store(loaded, key.generation());
+            return loaded;
+        });
+        return user == null ? null : new User(user);
+    }
+
+    private User cachedByUsername(String username) {
+        if (!enabled || username == null) {
+            return null;
+        }
+        Integer id = idsByUsername.get(usernameKey(username));
+        Entry entry = id != null ? live(id) : null;
+        // Another case of the name is left to the database to match or not
+        if (entry == null || !entry.user.getUsername().equals(username)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new User(entry.user);
+    }
+
+    /**
+     * A copy of the cached user, or null on a miss
+     */
+    private User cachedById(int id) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = live(id);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new User(entry.user);
+    }
+
+    /**
+     * The entry for the id if it has not expired, dropping it if it has
+     */
+    private Entry live(int id) {
+        Segment segment = segmentFor(id);
+        Entry entry = segment.find(id);
+        if (entry != null && entry.expiresAt - clock.getAsLong() <= 0) {
+            segment.drop(id, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void store(User user, long started) {
+        if (!enabled || user == null || user.getUsername() == null) {
+            return;
+        }
+        segmentFor(user.getId()).store(new Entry(new User(user), clock.getAsLong() + ttlNanos), started);
+    }
+
+    private void invalidateId(int id) {
+        generation.incrementAndGet();
+        Segment segment = segmentFor(id);
+        Entry entry = segment.find(id);
+        if (entry != null) {
+            segment.drop(id, entry);
+        }
+    }
+
+    private void invalidateUsernameMapping(String username) {
+        if (username == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        idsByUsername.remove(usernameKey(username));
+    }
+
+    /**
+     * Drop every entry whose username matches in any case, since the
+     * database may match names case insensitively. Deletes by name are rare
+     * enough to afford the scan.
+     */
+    private void invalidateUsername(String username) {
+        if (username == null) {
+            return;
+        }
+        invalidateUsernameMapping(username);
+        for (Segment segment : segments) {
+            segment.dropUsername(username);
+        }
+    }
+
+    private Segment segmentFor(int id) {
+        return segments[(id & 0x7fffffff) % SEGMENTS];
+    }
+
+    private static Integer parseId(String id) {
+        try {
+            return id == null ? null : Integer.valueOf(id.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A load of one username or id, begun at a generation
+     */
+    private record LoadKey(boolean byId, String value, long generation) {}
+
+    private static final class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        synchronized Entry find(int id) {
+            return get(id);
+        }
+
+        /**
+         * Cache the entry unless an invalidation happened since the load started
+         */
+        synchronized void store(Entry entry, long started) {
+            if (generation.get() != started) {
+                return;
+            }
+            Entry previous = put(entry.user.getId(), entry);
+            if (previous != null && !previous.user.getUsername().equals(entry.user.getUsername())) {
+                idsByUsername.remove(usernameKey(previous.user.getUsername()), previous.user.getId());
+            }
+            idsByUsername.put(usernameKey(entry.user.getUsername()), entry.user.getId());
+        }
+
+        synchronized void drop(int id, Entry entry) {
+            if (remove(id, entry)) {
+                idsByUsername.remove(usernameKey(entry.user.getUsername()), id);
+            }
+        }
+
+        synchronized void dropUsername(String username) {
+            Iterator<Map.Entry<Integer, Entry>> it = entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Entry> mapping = it.next();
+                if (mapping.getValue().user.getUsername().equalsIgnoreCase(username)) {
+                    it.remove();
+                    idsByUsername.remove(usernameKey(username), mapping.getKey());
+                }
+            }
+        }
+
+        synchronized void clearAll() {
+            clear();
+        }
+
+        synchronized int count() {
+            return size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                idsByUsername.remove(usernameKey(eldest.getValue().user.getUsername()), eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.rocketpop.repository;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.example.rocketpop.model.User;
 
@@ -43,4 +44,109 @@ public interface Database {
      * @return True if user was deleted successfully, false otherwise
      */
     boolean deleteUser(int id);
+
+    /**
+     * Deletes a user by username
+     * @param username Username of user to delete
+     * @return True if user was deleted successfully, false otherwise
+     */
+    boolean deleteUserByUsername(String username);
+
+    /**
+     * Deletes every user
+     * @return Number of users deleted
+     */
+    int deleteAllUsers();
+
+    /**
+     * Get user by id
+     * @param id Id of user to retrieve
+     * @return User object, or null if there is no such user
+     */
+    User getUserById(String id);
+
+    /**
+     * Get what login needs for a username in one query. Only id, username,
+     * password, salt, names, title, department and location are set.
+     * @param username Username of user to retrieve
+     * @return User object, or null if there is no such user
+     */
+    User getCredentials(String username);
+
+    /**
+     * Replaces only the password hash and salt of a user
+     * @param id Id of user to update
+     * @param password New password hash
+     * @param salt New salt column
+     * @return True if user was updated successfully, false otherwise
+     */
+    boolean updatePasswordHash(int id, String password, String salt);
+
+    /**
+     * Checks the table itself for a username
+     * @param username Username to check
+     * @return True if a user has this username
+     */
+    boolean userExists(String username);
+
+    /**
+     * Cheap check that needs no query for most unknown usernames
+     * @param username Username to check
+     * @return False only if no user can have this username
+     */
+    boolean mightExist(String username);
+
+    /**
+     * Get users whose username contains the text. Password and salt are not set.
+     * @param username Text to search for
+     * @return List of User objects
+     */
+    List<User> searchUsers(String username);
+
+    /**
+     * Get users in id order, starting after an id. Password and salt are not set.
+     * @param afterId Id the page starts after, 0 for the first page
+     * @param limit Most users to return
+     * @return List of User objects
+     */
+    List<User> getUsersAfterId(int afterId, int limit);
+
+    /**
+     * Get users whose username contains the text, in username order, starting
+     * after a username. Password and salt are not set.
+     * @param username Text to search for
+     * @param afterUsername Username the page starts after, empty for the first page
+     * @param limit Most users to return
+     * @return List of User objects
+     */
+    List<User> searchUsersAfter(String username, String afterUsername, int limit);
+
+    /**
+     * Hand every user, or those whose username contains the text, to the
+     * action as each row is read, without collecting them. Password and salt
+     * are not set.
+     * @param username Text to search for, null or empty for every user
+     * @param action Called once per user, in id order, or username order when searching
+     */
+    void forEachUser(String username, Consumer<User> action);
+
+    /**
+     * Get every username
+     * @return List of usernames, or null on a database error
+     */
+    List<String> getUsernames();
+
+    /**
+     * Get the salt column of a user
+     * @param username Username of user
+     * @return Salt, or null if there is no such user
+     */
+    String getUserSalt(String username);
+
+    /**
+     * Get the stored password hash of a user
+     * @param id Id of user
+     * @return Password hash, or null if there is no such user
+     */
+    String getPassword(int id);
 }
@@ -0,0 +1,75 @@
+package com.example.rocketpop.repository;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Persisted token denylist. Each row revokes either a single token (by jti)
+ * or every token a user was issued up to revoked_at, and is only kept until
+ * the last token it could apply to has expired.
+ */
+@Repository
+@DependsOn("schemaMigrations")
+public class RevocationDatabase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevocationDatabase.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String UPDATEREVOCATIONQUERY = "UPDATE revoked_tokens SET revoked_at = ?, expires_at = ? WHERE token_key = ?";
+    private static final String CREATEREVOCATIONQUERY = "INSERT INTO revoked_tokens (token_key, revoked_at, expires_at) VALUES (?, ?, ?)";
+    private static final String GETREVOKEDATQUERY = "SELECT revoked_at FROM revoked_tokens WHERE token_key = ? AND expires_at > ?";
+    private static final String GETACTIVEKEYSQUERY = "SELECT token_key FROM revoked_tokens WHERE expires_at > ?";
+    private static final String DELETEEXPIREDQUERY = "DELETE FROM revoked_tokens WHERE expires_at <= ?";
+    private static final String DELETEALLQUERY = "DELETE FROM revoked_tokens";
+
+    /**
+     * Add or refresh a revocation
+     * @param key Revocation key, "jti:..." or "user:..."
+     * @param revokedAt Time of revocation in epoch millis
+     * @param expiresAt Time after which the row can be purged in epoch millis
+     */
+    public void revoke(String key, long revokedAt, long expiresAt) {
+        LOGGER.info("revoke called with key: {}", key);
+        int count = jdbcTemplate.update(UPDATEREVOCATIONQUERY, revokedAt, expiresAt, key);
+        if (count == 0) {
+            try {
+                jdbcTemplate.update(CREATEREVOCATIONQUERY, key, revokedAt, expiresAt);
+            } catch (DuplicateKeyException e) {
+                // Revoked concurrently, ours is the later revocation
+                jdbcTemplate.update(UPDATEREVOCATIONQUERY, revokedAt, expiresAt, key);
+            }
+        }
+    }
+
+    /**
+     * Get when a key was revoked
+     * @return revoked_at in epoch millis, or null if the key is not revoked
+     */
+    public Long getRevokedAt(String key, long now) {
+        List<Long> revokedAt = jdbcTemplate.queryForList(GETREVOKEDATQUERY, Long.class, key, now);
+        return revokedAt.isEmpty() ? null : revokedAt.get(0);
+    }
+
+    /** Gets every key that has not expired yet */
+    public List<String> getActiveKeys(long now) {
+        return jdbcTemplate.queryForList(GETACTIVEKEYSQUERY, String.class, now);
+    }
+
+    public int deleteExpired(long now) {
+        int count = jdbcTemplate.update(DELETEEXPIREDQUERY, now);
+        LOGGER.info("deleteExpired removed {} revocations", count);
+        return count;
+    }
+
+    public int deleteAll() {
+        return jdbcTemplate.update(DELETEALLQUERY);
+    }
+}
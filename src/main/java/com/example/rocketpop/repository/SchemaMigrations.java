@@ -0,0 +1,174 @@
+package com.example.rocketpop.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Ordered schema migrations. Scripts named V&lt;version&gt;__&lt;description&gt;.sql
+ * under schema.migrations.location are applied once each, in version order,
+ * and recorded in schema_version with a checksum. At startup any script not
+ * yet recorded is applied; a recorded script whose contents have since
+ * changed stops startup, since the schema no longer matches the scripts.
+ *
+ * Scripts must run on both MySQL and H2. MySQL commits DDL as it goes, so a
+ * script that fails part way is not rolled back and has to be repaired by
+ * hand before the next start. Instances sharing a database should be
+ * upgraded one at a time; two applying the same script at once makes one of
+ * them fail to start.
+ *
+ * The repositories depend on this bean, so the schema is current before
+ * anything queries it.
+ */
+@Component
+public class SchemaMigrations {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATEVERSIONTABLEQUERY = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INT NOT NULL PRIMARY KEY, "
+            + "description VARCHAR(200) NOT NULL, "
+            + "checksum BIGINT NOT NULL, "
+            + "installed_at BIGINT NOT NULL)";
+    private static final String GETVERSIONSQUERY = "SELECT version, checksum FROM schema_version";
+    private static final String CREATEVERSIONQUERY = "INSERT INTO schema_version (version, description, checksum, installed_at) VALUES (?, ?, ?, ?)";
+
+    /**
+     * One script on the classpath
+     */
+    public record Migration(int version, String description, long checksum, Resource script) {}
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String location;
+    private final boolean enabled;
+
+    @Autowired
+    public SchemaMigrations(DataSource dataSource,
+                            @Value("${schema.migrations.location:classpath:db/migration}") String location,
+                            @Value("${schema.migrations.enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.location = location;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            LOGGER.warn("Schema migrations disabled, the schema is assumed to be current");
+            return;
+        }
+        migrate();
+    }
+
+    /**
+     * Apply every script that is not yet recorded
+     * @return the number of scripts applied
+     * @throws IllegalStateException if a recorded script has changed or a script fails
+     */
+    public int migrate() {
+        jdbcTemplate.execute(CREATEVERSIONTABLEQUERY);
+        Map<Integer, Long> applied = getAppliedVersions();
+
+        int count = 0;
+        for (Migration migration : findMigrations()) {
+            Long checksum = applied.get(migration.version());
+            if (checksum != null) {
+                if (checksum != migration.checksum()) {
+                    throw new IllegalStateException("Migration V" + migration.version() + " has changed since it was applied");
+                }
+                continue;
+            }
+            apply(migration);
+            count++;
+        }
+        if (count > 0) {
+            LOGGER.info("Applied {} schema migrations", count);
+        }
+        return count;
+    }
+
+    /**
+     * Recorded versions and the checksums they were applied with
+     */
+    public Map<Integer, Long> getAppliedVersions() {
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query(GETVERSIONSQUERY, rs -> {
+            applied.put(rs.getInt(1), rs.getLong(2));
+        });
+        return applied;
+    }
+
+    /**
+     * Scripts under the location, in version order
+     */
+    public List<Migration> findMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql")) {
+                Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    throw new IllegalStateException("Badly named migration " + resource.getFilename());
+                }
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                        checksum(resource), resource));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read migrations from " + location, e);
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Two migrations with version " + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    private void apply(Migration migration) {
+        LOGGER.info("Applying schema migration V{} {}", migration.version(), migration.description());
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            ScriptUtils.executeSqlScript(connection, migration.script());
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Migration V" + migration.version() + " failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        jdbcTemplate.update(CREATEVERSIONQUERY, migration.version(), migration.description(), migration.checksum(),
+                System.currentTimeMillis());
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = resource.getInputStream()) {
+            crc.update(in.readAllBytes());
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.rocketpop.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * Lets only one load per key run at a time. The first caller for a key
+ * runs the loader on its own thread; callers arriving while it runs wait
+ * for it and get the same value, or the same exception, instead of running
+ * their own. Once the load finishes the next caller starts a new one, so
+ * nothing is remembered beyond the load itself.
+ *
+ * Waiters give up after the timeout with a QueryTimeoutException, leaving
+ * the load running for the caller that started it. A timeout of 0 or less
+ * turns coalescing off and every caller runs its own load.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder joins = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Run the loader, or wait for the load of the same key already running
+     * @throws QueryTimeoutException if waiting for another caller's load took longer than the timeout
+     */
+    public V load(K key, Supplier<V> loader) {
+        if (timeoutNanos <= 0) {
+            loads.increment();
+            return loader.get();
+        }
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, mine);
+        if (running != null) {
+            joins.increment();
+            return await(running);
+        }
+
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        // Removed first, so no one joins a load that has already finished
+        flights.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new QueryTimeoutException("Timed out waiting for a load already in progress", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a load already in progress", e);
+        }
+    }
+
+    public int inFlight() { return flights.size(); }
+    public long getLoads() { return loads.sum(); }
+    public long getJoins() { return joins.sum(); }
+    public long getTimeouts() { return timeouts.sum(); }
+}
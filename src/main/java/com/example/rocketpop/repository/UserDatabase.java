@@ -1,33 +1,97 @@
 package com.example.rocketpop.repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.util.BloomFilter;
 
 import org.springframework.stereotype.Repository;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Users table. A Bloom filter of every username sits in front of the
+ * by-username reads, so a login for a name that does not exist is answered
+ * without a query. It is built at startup, updated by createUser and
+ * updateUser, and rebuilt from the table every refresh interval, which drops
+ * deleted names and picks up users added by other instances. Once the filter
+ * is older than max-staleness-seconds a name it rules out is looked up after
+ * all, so a user added by another instance can log in here within that bound
+ * rather than waiting for the next rebuild. The bound is a few refresh
+ * intervals, so the filter is only stale when rebuilds fail.
+ */
 @Repository
-public class UserDatabase implements Database {
+@DependsOn("schemaMigrations")
+public class UserDatabase implements Database, MeterBinder {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserDatabase.class);
 
+    private static final double USERNAME_FALSE_POSITIVE_RATE = 0.01;
+
+    @Value("${users.username-filter.expected-entries:100000}")
+    private int expectedUsernames = 100000;
+
+    @Value("${users.username-filter.refresh-interval-seconds:30}")
+    private long usernameRefreshIntervalSeconds;
+
+    @Value("${users.username-filter.max-staleness-seconds:90}")
+    private long usernameMaxStalenessSeconds = 90;
+
+    @Value("${users.export.fetch-size:1000}")
+    private int exportFetchSize = 1000;
+
+    // Null until first built, and then every username passes
+    private volatile BloomFilter usernameFilter;
+    private volatile long usernameFilterBuiltAt;
+
+    // Serialises writes that add a username with rebuilds, so a rebuild never drops a new name.
+    // Held across JDBC calls, so not a monitor: a virtual thread blocked inside synchronized pins its carrier
+    private final ReentrantLock usernameLock = new ReentrantLock();
+    private final LongAdder unknownUsernameRejections = new LongAdder();
+    private final LongAdder staleUsernameLookups = new LongAdder();
+    private ScheduledExecutorService usernameRefresher;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    private static final String GETUSERQUERY = "SELECT * FROM users WHERE username = ?";
-    private static final String GETALLUSERQUERY = "SELECT * FROM users";
-    private static final String SEARCHUSERSQUERY = "SELECT * FROM users WHERE username LIKE ?";
+    // Column lists in the order the mappers below read them, by index
+    private static final String USER_COLUMNS = "id, username, password, salt, first_name, last_name, title, department, email, country, city, location";
+    private static final String PROFILE_COLUMNS = "id, username, first_name, last_name, title, department, email, country, city, location";
+    private static final String CREDENTIALS_COLUMNS = "id, username, password, salt, first_name, last_name, title, department, location";
+
+    private static final String GETUSERQUERY = "SELECT " + USER_COLUMNS + " FROM users WHERE username = ?";
+    private static final String GETALLUSERQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users";
+    private static final String SEARCHUSERSQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users WHERE username LIKE ?";
+    private static final String GETUSERSAFTERIDQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String EXPORTUSERSQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users ORDER BY id";
+    private static final String EXPORTSEARCHUSERSQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users WHERE username LIKE ? ORDER BY username";
+    private static final String SEARCHUSERSAFTERQUERY = "SELECT " + PROFILE_COLUMNS + " FROM users WHERE username > ? AND username LIKE ? ORDER BY username LIMIT ?";
+    private static final String USEREXISTSQUERY = "SELECT EXISTS (SELECT 1 FROM users WHERE username = ?)";
     private static final String CREATEUSERQUERY = "INSERT INTO users (first_name, last_name, title, department, email, country, city, location, username, password, salt) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String GETUSERIDBYUSERNAMEQUERY = "SELECT id FROM users WHERE username = ?";
     private static final String UPDATEUSERQUERY = "UPDATE users SET username = ?, password = ?, salt = ?, first_name = ?, last_name = ?, title = ?, department = ?, email = ?, country = ?, city = ?, location = ? WHERE id = ?";
@@ -36,29 +100,39 @@ public class UserDatabase implements Database {
     private static final String DELETEALLUSERSQUERY = "DELETE FROM users";
     private static final String GETUSERSALTQUERY = "SELECT salt FROM users WHERE username = ?";
     private static final String GETUSERNAMESQUERY = "SELECT username FROM users";
-    private static final String GETUSERBYIDQUERY = "SELECT * FROM users WHERE id = ?";
+    private static final String GETUSERBYIDQUERY = "SELECT " + USER_COLUMNS + " FROM users WHERE id = ?";
+    private static final String GETPASSWORDQUERY = "SELECT password FROM users WHERE id = ?";
+    private static final String GETCREDENTIALSQUERY = "SELECT " + CREDENTIALS_COLUMNS + " FROM users WHERE username = ?";
+    private static final String UPDATEPASSWORDQUERY = "UPDATE users SET password = ?, salt = ? WHERE id = ?";
+
+    // Mappers hold no state, so one of each serves every query
+    private static final UserMapper USER_MAPPER = new UserMapper();
+    private static final ProfileMapper PROFILE_MAPPER = new ProfileMapper();
+    private static final CredentialsMapper CREDENTIALS_MAPPER = new CredentialsMapper();
 
     @Override
     public User getUser(String username) {
         LOGGER.info("getUser called with username: {}", username);
-        Object[] args = {username};
-        List<User> users = jdbcTemplate.query(GETUSERQUERY, args, new UserMapper());
+        if (!mightExist(username)) {
+            return null;
+        }
+        List<User> users = jdbcTemplate.query(GETUSERQUERY, USER_MAPPER, username);
 
-        if (users.size() == 0) {
+        if (users.isEmpty()) {
             LOGGER.info("No user found with username: {}", username);
-            for (User user : getAllUsers()) {
-                LOGGER.info("User: {}", user.getUsername());
-            }
             return null;
         }
         LOGGER.info("Found user: {}", users.get(0));
         return users.get(0);
     }
 
+    /**
+     * Every user for listing. Password and salt are not read and are left null.
+     */
     @Override
     public List<User> getAllUsers() {
         LOGGER.info("getAllUsers called");
-        List<User> users = jdbcTemplate.query(GETALLUSERQUERY, new UserMapper());
+        List<User> users = jdbcTemplate.query(GETALLUSERQUERY, PROFILE_MAPPER);
         if (users.size() == 0) {
             LOGGER.info("No users found");
             return new ArrayList<User>();
@@ -88,7 +162,15 @@ public class UserDatabase implements Database {
         };
         int count = -1;
 
+        usernameLock.lock();
+        try {
             count = jdbcTemplate.update(CREATEUSERQUERY, args);
+            if (count > 0) {
+                rememberUsername(user.getUsername());
+            }
+        } finally {
+            usernameLock.unlock();
+        }
 
         if (count < 1) {
             LOGGER.info("User not created");
@@ -119,7 +201,16 @@ public class UserDatabase implements Database {
 
         int count = -1;
         try {
-            count = jdbcTemplate.update(UPDATEUSERQUERY, args);
+            usernameLock.lock();
+            try {
+                count = jdbcTemplate.update(UPDATEUSERQUERY, args);
+                if (count > 0) {
+                    // The old name stays in the filter until the next rebuild
+                    rememberUsername(user.getUsername());
+                }
+            } finally {
+                usernameLock.unlock();
+            }
         } catch (DataAccessException e) {
             LOGGER.error("Error updating user: {}", e.getMessage());
             return false;
@@ -147,12 +238,14 @@ public class UserDatabase implements Database {
         return true;
     }
     
+    @Override
     public int deleteAllUsers() {
         LOGGER.info("deleteAllUsers called");
         int count = jdbcTemplate.update(DELETEALLUSERSQUERY);
         return count;
     }
 
+    @Override
     public boolean deleteUserByUsername(String username) {
         LOGGER.info("deleteUserByUsername called with username: {}", username);
         Object[] args = {username};
@@ -166,10 +259,13 @@ public class UserDatabase implements Database {
         return true;
     }
 
+    /**
+     * Users whose username contains the text, for listing. Password and salt are left null.
+     */
+    @Override
     public List<User> searchUsers(String username) {
         LOGGER.info("searchUsers called with username: {}", username);
-        Object[] args = {"%" + username + "%"};
-        List<User> users = jdbcTemplate.query(SEARCHUSERSQUERY, new UserMapper(), args);
+        List<User> users = jdbcTemplate.query(SEARCHUSERSQUERY, PROFILE_MAPPER, "%" + username + "%");
         if (users.size() == 0) {
             LOGGER.info("No users found");
             return new ArrayList<User>();
@@ -177,41 +273,168 @@ public class UserDatabase implements Database {
         return users;
     }
 
+    /**
+     * One page of users in primary key order. Reads only the rows it returns,
+     * however far into the table the page is.
+     */
+    @Override
+    public List<User> getUsersAfterId(int afterId, int limit) {
+        LOGGER.info("getUsersAfterId called with afterId: {}, limit: {}", afterId, limit);
+        return jdbcTemplate.query(GETUSERSAFTERIDQUERY, PROFILE_MAPPER, afterId, limit);
+    }
+
+    /**
+     * Streams users to the action row by row on one forward only, read only
+     * result set. With users.export.fetch-size at Integer.MIN_VALUE MySQL
+     * Connector/J sends rows as the server produces them instead of reading
+     * the whole result first, so memory stays flat at any table size. The
+     * connection stays busy until the last row, so a slow action holds a
+     * pool connection for as long as it takes.
+     */
+    @Override
+    public void forEachUser(String username, Consumer<User> action) {
+        LOGGER.info("forEachUser called with username: {}", username);
+        boolean search = username != null && !username.isEmpty();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(search ? EXPORTSEARCHUSERSQUERY : EXPORTUSERSQUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(exportFetchSize);
+            if (search) {
+                statement.setString(1, "%" + username + "%");
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(PROFILE_MAPPER.mapRow(rs, 0)));
+    }
+
+    /**
+     * One page of a search in username order. The username index is walked
+     * from afterUsername, testing each name against the pattern, and stops
+     * once the page is full.
+     */
+    @Override
+    public List<User> searchUsersAfter(String username, String afterUsername, int limit) {
+        LOGGER.info("searchUsersAfter called with username: {}, limit: {}", username, limit);
+        return jdbcTemplate.query(SEARCHUSERSAFTERQUERY, PROFILE_MAPPER, afterUsername, "%" + username + "%", limit);
+    }
+
+    /**
+     * Every column, for a user that may be passed back to updateUser
+     */
     public static final class UserMapper implements RowMapper<User> {
         @Override
         public User mapRow(ResultSet rs, int rowNum) throws SQLException {
-            var user = new User(rs.getString("username"), rs.getString("password"), rs.getString("salt"));
-            user.setId(rs.getInt("id"));
-            user.setFirstName(rs.getString("first_name"));
-            user.setLastName(rs.getString("last_name"));
-            user.setTitle(rs.getString("title"));
-            user.setDepartment(rs.getInt("department"));
-            user.setEmail(rs.getString("email"));
-            user.setCountry(rs.getString("country"));
-            user.setCity(rs.getString("city"));
-            user.setLocation(rs.getInt("location"));
+            var user = new User(rs.getString(2), rs.getString(3), rs.getString(4));
+            user.setId(rs.getInt(1));
+            user.setFirstName(rs.getString(5));
+            user.setLastName(rs.getString(6));
+            user.setTitle(rs.getString(7));
+            user.setDepartment(rs.getInt(8));
+            user.setEmail(rs.getString(9));
+            user.setCountry(rs.getString(10));
+            user.setCity(rs.getString(11));
+            user.setLocation(rs.getInt(12));
             return user;
         }
     }
 
+    /**
+     * Everything but the password hash and salt, for listings
+     */
+    public static final class ProfileMapper implements RowMapper<User> {
+        @Override
+        public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+            var user = new User(rs.getString(2), null, null);
+            user.setId(rs.getInt(1));
+            user.setFirstName(rs.getString(3));
+            user.setLastName(rs.getString(4));
+            user.setTitle(rs.getString(5));
+            user.setDepartment(rs.getInt(6));
+            user.setEmail(rs.getString(7));
+            user.setCountry(rs.getString(8));
+            user.setCity(rs.getString(9));
+            user.setLocation(rs.getInt(10));
+            return user;
+        }
+    }
+
+    /**
+     * Columns login needs, and nothing else: enough to check the password
+     * and mint a token. Email, country and city are left null.
+     */
+    public static final class CredentialsMapper implements RowMapper<User> {
+        @Override
+        public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+            var user = new User(rs.getString(2), rs.getString(3), rs.getString(4));
+            user.setId(rs.getInt(1));
+            user.setFirstName(rs.getString(5));
+            user.setLastName(rs.getString(6));
+            user.setTitle(rs.getString(7));
+            user.setDepartment(rs.getInt(8));
+            user.setLocation(rs.getInt(9));
+            return user;
+        }
+    }
+
+    /**
+     * Get what login needs for a username in one query, or null if there is
+     * no such user. The result only has the columns CredentialsMapper reads,
+     * so it must not be passed to updateUser.
+     */
+    @Override
+    public User getCredentials(String username) {
+        if (!mightExist(username)) {
+            return null;
+        }
+        List<User> users = jdbcTemplate.query(GETCREDENTIALSQUERY, CREDENTIALS_MAPPER, username);
+        if (users.isEmpty()) {
+            LOGGER.info("No credentials found for username: {}", username);
+            return null;
+        }
+        // May have been added by another instance since the last rebuild
+        rememberUsername(username);
+        return users.get(0);
+    }
+
+    /**
+     * Replace only the password hash and salt of a user
+     */
+    @Override
+    public boolean updatePasswordHash(int id, String password, String salt) {
+        LOGGER.info("updatePasswordHash called with id: {}", id);
+        try {
+            return jdbcTemplate.update(UPDATEPASSWORDQUERY, password, salt, id) > 0;
+        } catch (DataAccessException e) {
+            LOGGER.error("Error updating password hash: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Asks the database directly, not the username filter, since createUser
+     * relies on it to refuse names another instance has just taken
+     */
+    @Override
     public boolean userExists(String username) {
         LOGGER.info("userExists called with username: {}", username);
-        Object[] args = {username};
-        List<User> count = jdbcTemplate.query(GETUSERQUERY, args, new UserMapper());
-        return count.size() > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(USEREXISTSQUERY, Boolean.class, username));
     }
 
+    @Override
     public String getUserSalt(String username) {
         LOGGER.info("getUserSalt called with username: {}", username);
-        try {
-            return jdbcTemplate.queryForObject(GETUSERSALTQUERY, new Object[]{username}, String.class);
-        } catch (DataAccessException e) {
+        if (!mightExist(username)) {
+            return null;
+        }
+        List<String> salts = jdbcTemplate.queryForList(GETUSERSALTQUERY, String.class, username);
+        if (salts.isEmpty()) {
             LOGGER.info("No user found with username: {}", username);
             return null;
         }
+        return salts.get(0);
     }
 
     /** Gets all of the usernames of all users */
+    @Override
     public List<String> getUsernames() {
         LOGGER.info("getUsernames called");
         try {
@@ -222,12 +445,12 @@ public class UserDatabase implements Database {
         }
     }
 
+    @Override
     public User getUserById(String id) {
         LOGGER.info("getUserById called with id: {}", id);
-        Object[] args = {id};
-        List<User> users = jdbcTemplate.query(GETUSERBYIDQUERY, args, new UserMapper());
+        List<User> users = jdbcTemplate.query(GETUSERBYIDQUERY, USER_MAPPER, id);
 
-        if (users.size() == 0) {
+        if (users.isEmpty()) {
             LOGGER.info("No user found with id: {}", id);
             return null;
         }
@@ -235,4 +458,113 @@ public class UserDatabase implements Database {
         return users.get(0);
     }
 
+    /**
+     * Stored password hash of a user, or null if there is no such user
+     */
+    @Override
+    public String getPassword(int id) {
+        List<String> passwords = jdbcTemplate.queryForList(GETPASSWORDQUERY, String.class, id);
+        return passwords.isEmpty() ? null : passwords.get(0);
+    }
+
+    @PostConstruct
+    public void startUsernameFilter() {
+        rebuildUsernameFilter();
+        if (usernameRefreshIntervalSeconds <= 0) {
+            return;
+        }
+        if (usernameMaxStalenessSeconds > 0 && usernameMaxStalenessSeconds <= usernameRefreshIntervalSeconds) {
+            LOGGER.warn("users.username-filter.max-staleness-seconds {} is not above refresh-interval-seconds {}, "
+                    + "so unknown usernames are queried for part of every interval",
+                    usernameMaxStalenessSeconds, usernameRefreshIntervalSeconds);
+        }
+        usernameRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "username-filter-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        usernameRefresher.scheduleWithFixedDelay(this::rebuildUsernameFilter,
+                usernameRefreshIntervalSeconds, usernameRefreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopUsernameFilter() {
+        if (usernameRefresher != null) {
+            usernameRefresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Rebuild the username filter from the table. On a database error the
+     * current filter is kept.
+     */
+    public void rebuildUsernameFilter() {
+        usernameLock.lock();
+        try {
+            List<String> usernames = getUsernames();
+            if (usernames == null) {
+                LOGGER.error("Could not rebuild username filter, keeping the current one");
+                return;
+            }
+            // Leave headroom so the rate holds as users are added before the next rebuild
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedUsernames, usernames.size() * 2), USERNAME_FALSE_POSITIVE_RATE);
+            for (String username : usernames) {
+                rebuilt.put(filterKey(username));
+            }
+            usernameFilter = rebuilt;
+            usernameFilterBuiltAt = System.nanoTime();
+            LOGGER.info("Username filter rebuilt with {} usernames, {} KiB", usernames.size(), rebuilt.getBitCount() / 8 / 1024);
+        } finally {
+            usernameLock.unlock();
+        }
+    }
+
+    /**
+     * False only if no user can have this username, so the caller can skip the query.
+     * A stale filter cannot rule a name out, it may have been added by another instance.
+     */
+    @Override
+    public boolean mightExist(String username) {
+        if (username == null) {
+            return false;
+        }
+        BloomFilter filter = usernameFilter;
+        if (filter == null || filter.mightContain(filterKey(username))) {
+            return true;
+        }
+        if (usernameMaxStalenessSeconds > 0
+                && System.nanoTime() - usernameFilterBuiltAt > TimeUnit.SECONDS.toNanos(usernameMaxStalenessSeconds)) {
+            staleUsernameLookups.increment();
+            return true;
+        }
+        unknownUsernameRejections.increment();
+        return false;
+    }
+
+    private void rememberUsername(String username) {
+        BloomFilter filter = usernameFilter;
+        if (filter != null && username != null) {
+            filter.put(filterKey(username));
+        }
+    }
+
+    /**
+     * MySQL compares usernames case insensitively, so the filter does too
+     */
+    private static String filterKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    public long getUnknownUsernameRejections() { return unknownUsernameRejections.sum(); }
+    public long getStaleUsernameLookups() { return staleUsernameLookups.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("users.username-filter.rejections", this, UserDatabase::getUnknownUsernameRejections)
+                .description("Lookups for usernames the filter ruled out without a query")
+                .register(registry);
+        FunctionCounter.builder("users.username-filter.stale-lookups", this, UserDatabase::getStaleUsernameLookups)
+                .description("Lookups for usernames the filter ruled out, queried anyway as the filter was stale")
+                .register(registry);
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.rocketpop.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.util.JWTUtil;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Verifies batches of tokens for gateways, so one call answers for many
+ * tokens. Large batches are split into one slice per verification thread
+ * and checked in parallel; small ones are checked on the calling thread
+ * where handing off would cost more than the HMAC itself.
+ */
+@Service
+public class IntrospectionService {
+
+    // Below this many tokens the batch is verified inline
+    static final int MIN_PARALLEL_BATCH = 64;
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @Autowired
+    private RevocationService revocationService;
+
+    private final ForkJoinPool pool;
+
+    public IntrospectionService(@Value("${introspection.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Introspect every token, results are in the same order as the tokens
+     */
+    public List<Map<String, Object>> introspect(List<String> tokens) {
+        int size = tokens.size();
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] results = new Map[size];
+
+        int slices = Math.min(pool.getParallelism(), size / MIN_PARALLEL_BATCH);
+        if (slices <= 1) {
+            for (int i = 0; i < size; i++) {
+                results[i] = introspect(tokens.get(i));
+            }
+            return Arrays.asList(results);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(slices);
+        for (int s = 0; s < slices; s++) {
+            int from = (int) ((long) size * s / slices);
+            int to = (int) ((long) size * (s + 1) / slices);
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    results[i] = introspect(tokens.get(i));
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Introspect a single token. Inactive tokens only report active=false,
+     * nothing about why.
+     */
+    public Map<String, Object> introspect(String token) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        VerifiedToken verified = jwtUtil.verify(token);
+        if (verified == null || revocationService.isRevoked(verified)) {
+            result.put("active", false);
+            return result;
+        }
+        result.put("active", true);
+        result.put("role", verified.isAdmin() ? "admin" : "user");
+        if (verified.getExpiration() != null) {
+            result.put("exp", verified.getExpiration().getTime() / 1000);
+        }
+
+        // Dates go out as epoch seconds, the same as in the token itself
+        Map<String, Object> claims = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> claim : verified.getClaims().entrySet()) {
+            Object value = claim.getValue();
+            claims.put(claim.getKey(), value instanceof Date ? ((Date) value).getTime() / 1000 : value);
+        }
+        result.put("claims", claims);
+        return result;
+    }
+}
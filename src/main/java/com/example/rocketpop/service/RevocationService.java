@@ -0,0 +1,221 @@
+package com.example.rocketpop.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.repository.RevocationDatabase;
+import com.example.rocketpop.util.BloomFilter;
+import com.example.rocketpop.util.JWTUtil;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Token revocation. Single tokens are revoked by jti and users by id, which
+ * kills every token issued to them up to that moment. Revocations are stored
+ * in the revoked_tokens table and expire with the last token they can apply
+ * to.
+ *
+ * A Bloom filter of every live revocation sits in front of the table, so the
+ * usual "not revoked" answer is a few bit probes and never touches the
+ * database. Only keys that pass the filter are looked up, and the answer is
+ * kept until the filter is next rebuilt. The filter is rebuilt from the table
+ * every refresh interval, which also picks up revocations made by other
+ * instances and drops expired ones.
+ */
+@Service
+public class RevocationService implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevocationService.class);
+
+    static final String TOKEN_PREFIX = "jti:";
+    static final String USER_PREFIX = "user:";
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // Cached table answer for a key that passed the filter but is not revoked
+    private static final long NOT_REVOKED = -1;
+
+    private final RevocationDatabase revocationDatabase;
+    private final int expectedEntries;
+    private final long refreshIntervalSeconds;
+
+    private volatile BloomFilter filter;
+    private final ConcurrentHashMap<String, Long> confirmed = new ConcurrentHashMap<>();
+
+    // Serialises revocations with rebuilds so a rebuild never drops a new entry. A ReentrantLock
+    // rather than a monitor, since it is held across queries and must not pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private ScheduledExecutorService refresher;
+
+    @Autowired
+    public RevocationService(RevocationDatabase revocationDatabase,
+                             @Value("${jwt.revocation.expected-entries:100000}") int expectedEntries,
+                             @Value("${jwt.revocation.refresh-interval-seconds:60}") long refreshIntervalSeconds) {
+        this.revocationDatabase = revocationDatabase;
+        this.expectedEntries = expectedEntries;
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+        this.filter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    public void startRefreshing() {
+        rebuild();
+        if (refreshIntervalSeconds <= 0) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jwt-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::rebuild, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopRefreshing() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Revoke a single token
+     * @param tokenId jti of the token
+     * @param expiration exp of the token, or null to keep the revocation for the longest token lifetime
+     */
+    public void revokeToken(String tokenId, Date expiration) {
+        long now = System.currentTimeMillis();
+        long expiresAt = expiration != null ? expiration.getTime() : now + JWTUtil.EXPIRATION_TIME;
+        revoke(TOKEN_PREFIX + tokenId, now, expiresAt);
+    }
+
+    /**
+     * Revoke every token issued to a user so far. Tokens issued afterwards are
+     * still honoured.
+     */
+    public void revokeUser(String userId) {
+        long now = System.currentTimeMillis();
+        revoke(USER_PREFIX + userId, now, now + JWTUtil.EXPIRATION_TIME);
+    }
+
+    private void revoke(String key, long now, long expiresAt) {
+        lock.lock();
+        try {
+            revocationDatabase.revoke(key, now, expiresAt);
+            filter.put(key);
+            confirmed.put(key, now);
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.info("Revoked {}", key);
+    }
+
+    /**
+     * Check if a verified token has been revoked, either by its jti or by its user
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        if (token == null) {
+            return false;
+        }
+        checks.increment();
+        BloomFilter current = filter;
+
+        String tokenId = token.getTokenId();
+        if (tokenId != null) {
+            String key = TOKEN_PREFIX + tokenId;
+            if (current.mightContain(key) && revokedAt(key) != NOT_REVOKED) {
+                rejections.increment();
+                return true;
+            }
+        }
+
+        String userId = token.getId();
+        if (userId != null) {
+            String key = USER_PREFIX + userId;
+            if (current.mightContain(key)) {
+                long revokedAt = revokedAt(key);
+                // iat only has second precision, so a token minted in the same
+                // second as the revocation is treated as revoked too
+                Date issuedAt = token.getIssuedAt();
+                if (revokedAt != NOT_REVOKED && (issuedAt == null || issuedAt.getTime() <= revokedAt)) {
+                    rejections.increment();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private long revokedAt(String key) {
+        Long cached = confirmed.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Not computeIfAbsent: that runs the query inside the map's bin monitor, which pins a
+        // virtual thread's carrier. Two callers may both look the key up, which is harmless
+        lookups.increment();
+        Long revokedAt = revocationDatabase.getRevokedAt(key, System.currentTimeMillis());
+        long answer = revokedAt != null ? revokedAt : NOT_REVOKED;
+        Long previous = confirmed.putIfAbsent(key, answer);
+        return previous != null ? previous : answer;
+    }
+
+    /**
+     * Purge expired revocations and rebuild the filter from the table. On a
+     * database error the current filter is kept.
+     */
+    public void rebuild() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            revocationDatabase.deleteExpired(now);
+            List<String> keys = revocationDatabase.getActiveKeys(now);
+            // Leave headroom so the rate holds until the next rebuild
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, keys.size() * 2), FALSE_POSITIVE_RATE);
+            for (String key : keys) {
+                rebuilt.put(key);
+            }
+            filter = rebuilt;
+            confirmed.clear();
+            LOGGER.info("Revocation filter rebuilt with {} entries", keys.size());
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not rebuild revocation filter, keeping the current one: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getChecks() { return checks.sum(); }
+    public long getLookups() { return lookups.sum(); }
+    public long getRejections() { return rejections.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.revocation.checks", this, RevocationService::getChecks).register(registry);
+        FunctionCounter.builder("jwt.revocation.lookups", this, RevocationService::getLookups).register(registry);
+        FunctionCounter.builder("jwt.revocation.rejections", this, RevocationService::getRejections).register(registry);
+    }
+}
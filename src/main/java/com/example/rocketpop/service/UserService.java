@@ -1,58 +1,117 @@
 package com.example.rocketpop.service;
 
+import com.example.rocketpop.model.AuthResult;
 import com.example.rocketpop.model.User;
-import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.model.UserPage;
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.repository.Database;
 import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Service
 public class UserService {
+
+    // Cursors name the column they continue from, so one listing's cursor is refused by the other
+    private static final String ID_CURSOR = "id:";
+    private static final String USERNAME_CURSOR = "username:";
     
     @Autowired
-    private UserDatabase userDatabase;
+    private Database userDatabase;
     
     @Autowired
     private JWTUtil jwtUtil;
 
+    @Autowired
+    private RevocationService revocationService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     Logger logger = LoggerFactory.getLogger(UserService.class);
     
     //private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     
     /**
-     * Authenticate user and generate appropriate token
+     * Authenticate user with a plaintext password and generate appropriate
+     * token. A stored hash made with an older algorithm or parameters is
+     * replaced with one from PasswordHasher.encode while the password is known.
+     * Never throws for a wrong username or password, see AuthResult.
      */
-    public String authenticateUser(String username, String password) {
-        User user = userDatabase.getUser(username);
-        
+    public AuthResult authenticateWithPassword(String username, String password) {
+        return authenticate(username, user -> checkPassword(password, user));
+    }
+
+    /**
+     * As authenticateWithPassword, with the CPU bound part passed in so the
+     * caller can run it elsewhere, typically checkPassword on HashingExecutor.
+     * The lookup, any rehash UPDATE and the token are done on this thread, so
+     * a slow database never holds a hashing thread.
+     */
+    public AuthResult authenticate(String username, Function<User, PasswordCheck> check) {
+        // One query per attempt, whatever the outcome
+        User user = userDatabase.getCredentials(username);
+
         if (user == null) {
-            throw new RuntimeException("Invalid username or password");
+            return AuthResult.UNKNOWN_USER;
         }
 
-        logger.info("user: {}", user);
-        logger.info("password: {}", password);
-        logger.info("user.getPassword(): {}", user.getPassword());
-        
-        if (!password.equals(user.getPassword())) {
-            throw new RuntimeException("Invalid password");
+        PasswordCheck checked = check.apply(user);
+        if (!checked.matches()) {
+            return AuthResult.BAD_PASSWORD;
         }
-        /*
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            throw new RuntimeException("Invalid password");
+
+        if (checked.rehash() != null) {
+            logger.info("Rehashing password for user id {}", user.getId());
+            // The new hash carries its own salt
+            userDatabase.updatePasswordHash(user.getId(), checked.rehash(), "");
         }
-        */
-        /*
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            throw new RuntimeException("Invalid username or password");
+
+        return new AuthResult.Success(user, generateToken(user));
+    }
+
+    /**
+     * Outcome of checkPassword
+     * @param rehash Replacement hash when the password matched a hash that
+     *     needsRehash, otherwise null
+     */
+    public record PasswordCheck(boolean matches, String rehash) {}
+
+    /**
+     * Check a plaintext password against the user's stored hash, and make the
+     * replacement hash if it is due. Only hashing, no database work.
+     */
+    public PasswordCheck checkPassword(String password, User user) {
+        if (!passwordHasher.matches(password, user.getPassword(), user.getSalt())) {
+            return new PasswordCheck(false, null);
         }
-        */
-        
-        // Generate appropriate token based on title
+        String rehash = passwordHasher.needsRehash(user.getPassword()) ? passwordHasher.encode(password) : null;
+        return new PasswordCheck(true, rehash);
+    }
+
+    /**
+     * False only if no user can have this username, usually without a query,
+     * so a login for an unknown name can be refused before any decryption or hashing
+     */
+    public boolean mightExist(String username) {
+        return userDatabase.mightExist(username);
+    }
+
+    /**
+     * Generate appropriate token based on title
+     */
+    private String generateToken(User user) {
         String title = user.getTitle() != null ? user.getTitle() : "user";
         
         logger.info("title: {}", title);
@@ -67,33 +126,28 @@ public class UserService {
      * Get user by username
      */
     public User getUserByUsername(String username) {
-        User user = userDatabase.getUser(username);
-        if (user == null) {
-            throw new RuntimeException("User not found");
-        }
-        return user;
+        return findUserByUsername(username).orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * Get user by username, empty if there is none
+     */
+    public Optional<User> findUserByUsername(String username) {
+        return Optional.ofNullable(userDatabase.getUser(username));
     }
 
     /**
      * Get user by id
      */
     public User getUserById(String id) {
-        User user = userDatabase.getUserById(id);
-        if (user == null) {
-            throw new RuntimeException("User not found");
-        }
-        return user;
+        return findUserById(id).orElseThrow(() -> new RuntimeException("User not found"));
     }
-    
+
     /**
-     * Get user info from token
+     * Get user by id, empty if there is none
      */
-    public User getUserFromToken(String token) {
-        logger.info("getUserFromToken called with token: {}", token);
-        boolean isAdmin = jwtUtil.isAdminToken(token);
-        String id = jwtUtil.extractId(token, isAdmin);
-        logger.info("userid: {}", id);
-        return getUserById(id);
+    public Optional<User> findUserById(String id) {
+        return Optional.ofNullable(userDatabase.getUserById(id));
     }
     
     /**
@@ -190,22 +244,84 @@ public class UserService {
         }
         return userDatabase.searchUsers(username);
     }
+
+    /**
+     * Hand every user, or those whose username contains the text, to the
+     * action as they are read from the database, without building a list
+     */
+    public void forEachUser(String username, Consumer<User> action) {
+        userDatabase.forEachUser(username, action);
+    }
+
+    /**
+     * One page of users: every user in id order, or those whose username
+     * contains the text in username order. Pages are keyed on the last row
+     * of the page before, not on an offset, so rows added or removed
+     * meanwhile never shift a row onto two pages or skip one.
+     * @param username Text to search for, null or empty for every user
+     * @param after nextCursor of the previous page, null for the first page
+     * @param limit Most users on the page
+     * @throws IllegalArgumentException if after is not a cursor from the same kind of listing
+     */
+    public UserPage getUsersPage(String username, String after, int limit) {
+        boolean search = username != null && !username.isEmpty();
+        String position = after == null || after.isEmpty() ? null : decodeCursor(after, search ? USERNAME_CURSOR : ID_CURSOR);
+
+        // One extra row says whether there is a next page
+        List<User> users;
+        if (search) {
+            users = userDatabase.searchUsersAfter(username, position == null ? "" : position, limit + 1);
+        } else {
+            users = userDatabase.getUsersAfterId(position == null ? 0 : parseCursorId(position), limit + 1);
+        }
+        if (users.size() <= limit) {
+            return new UserPage(users, null);
+        }
+        users = users.subList(0, limit);
+        User last = users.get(limit - 1);
+        String next = search
+                ? encodeCursor(USERNAME_CURSOR, last.getUsername())
+                : encodeCursor(ID_CURSOR, String.valueOf(last.getId()));
+        return new UserPage(users, next);
+    }
+
+    private static String encodeCursor(String kind, String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((kind + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor, String kind) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!decoded.startsWith(kind)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return decoded.substring(kind.length());
+    }
+
+    private static int parseCursorId(String position) {
+        try {
+            return Integer.parseInt(position);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
     
     /**
-     * Validate admin token
+     * Validate admin token that was verified by VerifiedTokenFilter
      */
-    public boolean validateAdminToken(String token) {
-        token = jwtUtil.cleanToken(token);
-        return jwtUtil.isAdminToken(token) && jwtUtil.validateToken(token, true);
+    public boolean validateAdminToken(VerifiedToken token) {
+        return token != null && token.isAdmin() && !revocationService.isRevoked(token);
     }
     
     /**
-     * Validate user token (admin or user)
+     * Validate user token (admin or user) that was verified by VerifiedTokenFilter
      */
-    public boolean validateUserToken(String token) {
-        token = jwtUtil.cleanToken(token);
-        boolean isAdmin = jwtUtil.isAdminToken(token);
-        return jwtUtil.validateToken(token, isAdmin);
+    public boolean validateUserToken(VerifiedToken token) {
+        return token != null && !revocationService.isRevoked(token);
     }
 
     /**
@@ -217,11 +333,11 @@ public class UserService {
 
     /** Gets password from user id */
     public String getPasswordFromId(int id) {
-        User user = userDatabase.getUserById(String.valueOf(id));
-        if (user == null) {
+        String password = userDatabase.getPassword(id);
+        if (password == null) {
             throw new RuntimeException("User not found");
         }
-        return user.getPassword();
+        return password;
     }
 
 }
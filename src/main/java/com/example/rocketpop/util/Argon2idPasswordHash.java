@@ -0,0 +1,139 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Argon2id (RFC 9106), encoded as $argon2id$v=19$m=&lt;KiB&gt;,t=&lt;passes&gt;,p=&lt;lanes&gt;$salt$hash.
+ * Memory is fixed by configuration; calibration only tunes the number of passes.
+ */
+public class Argon2idPasswordHash implements PasswordHashAlgorithm {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Argon2idPasswordHash.class);
+
+    public static final String ID = "argon2id";
+
+    // OWASP minimum: 19 MiB, 2 passes, 1 lane
+    static final int DEFAULT_MEMORY_KIB = 19456;
+    static final int DEFAULT_PASSES = 2;
+    private static final int HASH_BYTES = 32;
+    private static final byte[] CALIBRATION_PASSWORD = "calibration".getBytes(StandardCharsets.US_ASCII);
+
+    private final int memoryKib;
+    private final int parallelism;
+    private volatile int passes;
+
+    public Argon2idPasswordHash() {
+        this(DEFAULT_MEMORY_KIB, DEFAULT_PASSES, 1);
+    }
+
+    public Argon2idPasswordHash(int memoryKib, int passes, int parallelism) {
+        this.memoryKib = memoryKib;
+        this.passes = passes;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    public int getPasses() {
+        return passes;
+    }
+
+    @Override
+    public String getParameters() {
+        return parameters(passes);
+    }
+
+    private String parameters(int t) {
+        return "v=19$m=" + memoryKib + ",t=" + t + ",p=" + parallelism;
+    }
+
+    @Override
+    public String hash(String password, byte[] salt) {
+        int t = passes;
+        byte[] hash = derive(password.getBytes(StandardCharsets.UTF_8), salt, memoryKib, t, parallelism, HASH_BYTES);
+        return PasswordHashAlgorithm.encode(ID, parameters(t), salt, hash);
+    }
+
+    @Override
+    public boolean matches(byte[] password, int length, StoredHash stored) {
+        int[] mtp = parseParameters(stored.getParameters());
+        // Argon2 fills m KiB of memory per check, a few small allocations here do not matter
+        byte[] plain = Arrays.copyOf(password, length);
+        try {
+            return MessageDigest.isEqual(stored.hash, derive(plain, stored.salt, mtp[0], mtp[1], mtp[2], stored.hash.length));
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    @Override
+    public boolean isWeaker(StoredHash stored) {
+        int[] mtp = parseParameters(stored.getParameters());
+        return mtp[0] < memoryKib || mtp[1] < passes;
+    }
+
+    /**
+     * Parse "v=19$m=&lt;KiB&gt;,t=&lt;passes&gt;,p=&lt;lanes&gt;" into m, t and p
+     */
+    private static int[] parseParameters(String parameters) {
+        int m = 0;
+        int t = 0;
+        int p = 0;
+        for (String field : parameters.split("[$,]")) {
+            String[] pair = field.split("=", 2);
+            switch (pair[0]) {
+                case "v":
+                    if (!"19".equals(pair[1])) {
+                        throw new IllegalArgumentException("Unsupported argon2 version: " + pair[1]);
+                    }
+                    break;
+                case "m": m = Integer.parseInt(pair[1]); break;
+                case "t": t = Integer.parseInt(pair[1]); break;
+                case "p": p = Integer.parseInt(pair[1]); break;
+                default: throw new IllegalArgumentException("Unknown argon2 parameter: " + field);
+            }
+        }
+        return new int[] {m, t, p};
+    }
+
+    @Override
+    public void calibrate(long targetMillis) {
+        byte[] salt = new byte[16];
+        // First run warms up the JIT
+        derive(CALIBRATION_PASSWORD, salt, memoryKib, 1, parallelism, HASH_BYTES);
+        long start = System.nanoTime();
+        derive(CALIBRATION_PASSWORD, salt, memoryKib, 1, parallelism, HASH_BYTES);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        passes = (int) Math.max(1, Math.min(64, targetMillis * 1_000_000L / elapsed));
+        if (elapsed > targetMillis * 1_000_000L) {
+            LOGGER.warn("One Argon2id pass over {} KiB takes {} ms, over the {} ms budget", memoryKib, elapsed / 1_000_000, targetMillis);
+        }
+        LOGGER.info("Argon2id calibrated to {} for {} ms", getParameters(), targetMillis);
+    }
+
+    private static byte[] derive(byte[] password, byte[] salt, int memoryKib, int passes, int parallelism, int hashBytes) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withSalt(salt)
+                .withMemoryAsKB(memoryKib)
+                .withIterations(passes)
+                .withParallelism(parallelism)
+                .build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        byte[] hash = new byte[hashBytes];
+        generator.generateBytes(password, hash);
+        return hash;
+    }
+}
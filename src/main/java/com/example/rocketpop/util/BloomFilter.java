@@ -0,0 +1,88 @@
+package com.example.rocketpop.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free Bloom filter over strings. mightContain never returns false for
+ * a string that was put, and returns true for one that was not with roughly
+ * the false positive rate the filter was sized for.
+ *
+ * Bits can only be set, never cleared, so removing entries means building a
+ * new filter.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedEntries number of strings the filter is sized for
+     * @param falsePositiveRate target false positive rate at that size, e.g. 0.01
+     */
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(1, expectedEntries);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, bits);
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() { return bitCount; }
+    public int getHashCount() { return hashCount; }
+
+    private long index(int combined) {
+        // Flip negative hashes instead of using abs, which breaks for MIN_VALUE
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    /**
+     * 64 bit FNV-1a over the chars, finished with the murmur3 fmix64 step so
+     * both halves are usable as independent hashes
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.rocketpop.util;
+
+import java.util.Map;
+
+/**
+ * How a client encrypts a password before sending it to /login or the admin
+ * user endpoints. The frontend picks the scheme and public key advertised at
+ * GET /credential-transport; CredentialTransports routes each ciphertext back
+ * to the scheme that produced it.
+ */
+public interface CredentialTransport {
+
+    /**
+     * Scheme name, as advertised to clients and set in credential.transport.scheme
+     */
+    String getScheme();
+
+    /**
+     * Check if the ciphertext was produced by this scheme
+     */
+    boolean accepts(String ciphertext);
+
+    /**
+     * Decrypt a password sent by a client
+     * @return The plaintext password, or null if it could not be decrypted
+     */
+    String decrypt(String ciphertext);
+
+    /**
+     * Encrypt a password the way a client would. Used by tests and tooling.
+     * @return The ciphertext, or null if it could not be encrypted
+     */
+    String encrypt(String plaintext);
+
+    /**
+     * Public description of the scheme for clients: scheme, publicKey and format
+     */
+    Map<String, Object> describe();
+}
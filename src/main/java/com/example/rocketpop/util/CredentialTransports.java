@@ -0,0 +1,85 @@
+package com.example.rocketpop.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Every registered CredentialTransport. credential.transport.scheme picks the
+ * one advertised to clients, but ciphertexts from any registered scheme are
+ * accepted, so clients can move between schemes without a flag day.
+ */
+@Component
+public class CredentialTransports {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CredentialTransports.class);
+
+    private final List<CredentialTransport> transports;
+    private final CredentialTransport active;
+
+    @Autowired
+    public CredentialTransports(List<CredentialTransport> transports,
+                                @Value("${credential.transport.scheme:RSA}") String scheme) {
+        // RSA takes anything without a prefix, so it has to be tried last
+        this.transports = new ArrayList<>(transports);
+        this.transports.sort((a, b) -> Boolean.compare(a instanceof RsaCredentialTransport, b instanceof RsaCredentialTransport));
+        this.active = get(scheme);
+        if (active == null) {
+            throw new IllegalArgumentException("Unknown credential.transport.scheme: " + scheme);
+        }
+        LOGGER.info("Credential transport scheme: {}", active.getScheme());
+    }
+
+    /**
+     * Get the scheme advertised to clients
+     */
+    public CredentialTransport getActive() {
+        return active;
+    }
+
+    /**
+     * Get a scheme by name, or null if it is not registered
+     */
+    public CredentialTransport get(String scheme) {
+        for (CredentialTransport transport : transports) {
+            if (transport.getScheme().equalsIgnoreCase(scheme)) {
+                return transport;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decrypt a password with whichever scheme produced it
+     * @return The plaintext password, or null if it could not be decrypted
+     */
+    public String decrypt(String ciphertext) {
+        if (ciphertext == null) {
+            return null;
+        }
+        for (CredentialTransport transport : transports) {
+            if (transport.accepts(ciphertext)) {
+                return transport.decrypt(ciphertext);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Public description of the active scheme, plus the names of all accepted ones
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = active.describe();
+        List<String> schemes = new ArrayList<>();
+        for (CredentialTransport transport : transports) {
+            schemes.add(transport.getScheme());
+        }
+        description.put("accepted", schemes);
+        return description;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.rocketpop.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs credential decryption and hashing on a fixed set of threads with a
+ * bounded queue, so a login flood can only ever use that many cores and the
+ * rest of the request threads keep serving cheap endpoints. When the queue
+ * is full, work is rejected straight away with RejectedExecutionException
+ * rather than piling up, and the caller should answer 503.
+ */
+@Component
+public class HashingExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+
+    private final LongAdder rejections = new LongAdder();
+    private volatile Timer waitTimer;
+
+    @Autowired
+    public HashingExecutor(@Value("${credential.hashing.threads:0}") int threads,
+                           @Value("${credential.hashing.queue-capacity:64}") int queueCapacity,
+                           @Value("${credential.hashing.retry-after-seconds:1}") int retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread thread = new Thread(r, "credential-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run the task on a hashing thread and wait for its result. Exceptions
+     * thrown by the task are rethrown as they are when unchecked.
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> T call(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (waitTimer != null) {
+                    waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                }
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw e;
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for credential hashing", e);
+        }
+    }
+
+    /**
+     * Seconds a rejected client should wait before retrying
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public long getRejections() { return rejections.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("credential.hashing.queue.depth", this, HashingExecutor::getQueueDepth).register(registry);
+        Gauge.builder("credential.hashing.active", this, HashingExecutor::getActiveCount).register(registry);
+        FunctionCounter.builder("credential.hashing.rejections", this, HashingExecutor::getRejections).register(registry);
+        waitTimer = Timer.builder("credential.hashing.queue.wait")
+                .description("Time credential work spends queued before a hashing thread picks it up")
+                .register(registry);
+    }
+}
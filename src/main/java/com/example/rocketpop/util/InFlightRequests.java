@@ -0,0 +1,60 @@
+package com.example.rocketpop.util;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts requests currently being handled and the most seen at once. With
+ * platform threads the Tomcat busy thread gauge shows saturation; with
+ * virtual threads there is no pool to fill, so this is the number to watch.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class InFlightRequests extends OncePerRequestFilter implements MeterBinder {
+
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int now = current.incrementAndGet();
+        peak.accumulateAndGet(now, Math::max);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            current.decrementAndGet();
+        }
+    }
+
+    public int getCurrent() { return current.get(); }
+    public int getPeak() { return peak.get(); }
+
+    /**
+     * Start a new measurement window
+     * @return the peak since the previous reset
+     */
+    public int resetPeak() {
+        return peak.getAndSet(current.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.server.in-flight", this, InFlightRequests::getCurrent).register(registry);
+        Gauge.builder("http.server.in-flight.peak", this, InFlightRequests::getPeak).register(registry);
+    }
+}
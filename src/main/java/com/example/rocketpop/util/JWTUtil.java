@@ -1,14 +1,12 @@
 package com.example.rocketpop.util;
 
-import org.json.JSONObject;
-
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.VerifiedToken;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
@@ -24,21 +22,24 @@ public class JWTUtil {
     
     private static final Logger logger = LoggerFactory.getLogger(JWTUtil.class);
     
-    // Secret key for user tokens (can be used with external apps)
-    private static final String USER_SECRET = "RockertSoftwareRocks2025ThisIsNotSecureEnough";
-    
-    // Different secret for admin tokens (internal use only)
-    private static final String ADMIN_SECRET = "RocketSSOAdminSecretKey2025InternalUseOnlygibberishasdfasdfasdf";
-    
-    private static final long EXPIRATION_TIME = 86400000; // 24 hours
+    public static final long EXPIRATION_TIME = 86400000; // 24 hours
     
+    // Keys and parsers for user tokens (external apps) and admin tokens (internal use only)
+    @Autowired
+    private JwtKeyring keyring;
+
+    // Tokens that already passed verification, until their exp
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    private final TokenMinter minter = new TokenMinter();
 
     public SecretKey getAdminSecretKey() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(ADMIN_SECRET));
+        return keyring.getKey(true);
     }
     
     public SecretKey getUserSecretKey() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(USER_SECRET));
+        return keyring.getKey(false);
     }
     
     /**
@@ -46,17 +47,14 @@ public class JWTUtil {
      * These tokens can be used by external applications
      */
     public String generateUserToken(User user) {
+        long now = System.currentTimeMillis();
+        JwtKeyring.KeyEntry key = keyring.getSigningKey(false);
 
-        JSONObject userObject = new JSONObject();
-        userObject.put("id", user.getId());
-        userObject.put("first_Name", user.getFirstName());
-        userObject.put("last_Name", user.getLastName());
-        userObject.put("location", user.getLocation());
-        userObject.put("department", user.getDepartment());
-        userObject.put("title", user.getTitle());
+        if (key.getSigningKey() instanceof SecretKey) {
+            return minter.mintUserToken(user, key.getKid(), (SecretKey) key.getSigningKey(), now, now + EXPIRATION_TIME);
+        }
 
-        Date now = new Date();
-        Date expiration = new Date(now.getTime() + EXPIRATION_TIME);
+        // ES256 keys are signed by jjwt
         Map<String, Object> claims = new HashMap<>();
         claims.put("id", user.getId());
         claims.put("first_name", user.getFirstName());
@@ -65,16 +63,15 @@ public class JWTUtil {
         claims.put("department", Integer.toString(user.getDepartment()));
         claims.put("title", user.getTitle());
 
-        SecretKey key = getUserSecretKey();
-
-        
         return Jwts.builder()
+            .header().keyId(key.getKid()).and()
             .issuer("Auth Service")
+            .id(TokenMinter.newTokenId())
             .claims(claims)
             .subject(user.getFirstName() + " " + user.getLastName())
-            .issuedAt(now)
-            .expiration(expiration)
-            .signWith(key)
+            .issuedAt(new Date(now))
+            .expiration(new Date(now + EXPIRATION_TIME))
+            .signWith(key.getSigningKey())
             .compact();
     }
     
@@ -83,100 +80,56 @@ public class JWTUtil {
      * These tokens are for internal SSO website use only
      */
     public String generateAdminToken(User user) {
+        long now = System.currentTimeMillis();
+        JwtKeyring.KeyEntry key = keyring.getSigningKey(true);
 
-        JSONObject userObject = new JSONObject();
-        userObject.put("id", user.getId());
-        userObject.put("firstName", user.getFirstName());
-        userObject.put("lastName", user.getLastName());
-        userObject.put("location", user.getLocation());
-        userObject.put("department", user.getDepartment());
-        userObject.put("title", user.getTitle());
-        userObject.put("role", "admin");
-        userObject.put("type", "admin");
-
-        Date now = new Date();
-        Date expiration = new Date(now.getTime() + EXPIRATION_TIME);
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("id", user.getId());
-        claims.put("firstName", user.getFirstName());
-        claims.put("lastName", user.getLastName());
-        claims.put("location", user.getLocation());
-        claims.put("department", user.getDepartment());
-        claims.put("title", user.getTitle());
-
-        SecretKey key = getAdminSecretKey();
-        
-        return Jwts.builder()
-            .issuer("Auth Service")
-            .claims(claims)
-            .subject(user.getFirstName() + " " + user.getLastName())
-            .issuedAt(now)
-            .expiration(expiration)
-            .signWith(key)
-            .compact();
-    }
-    
-    /**
-     * Extract id from token
-     */
-    public String extractId(String token, boolean isAdmin) {
-        Object id = extractClaims(token, isAdmin).get("id");
-        return id != null ? id.toString() : null;
-    }
-    
-    /**
-     * Extract title from token
-     */
-    public String extractTitle(String token, boolean isAdmin) {
-        return (String) extractClaims(token, isAdmin).get("title");
-    }
-    
-    /**
-     * Extract email from token
-     */
-    public String extractEmail(String token, boolean isAdmin) {
-        return (String) extractClaims(token, isAdmin).get("email");
-    }
-    
-    /**
-     * Extract all claims from token
-     */
-    private Claims extractClaims(String token, boolean isAdmin) {
-        SecretKey key = isAdmin ? getAdminSecretKey() : getUserSecretKey();
-        logger.info("extractClaims called with token: {}", token);
-        logger.info("key: {}", key);
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        logger.info("claims: {}", claims);
-        return claims;
+        // Admin keys are always HMAC
+        return minter.mintAdminToken(user, key.getKid(), (SecretKey) key.getSigningKey(), now, now + EXPIRATION_TIME);
     }
     
     /**
      * Validate token
      */
     public boolean validateToken(String token, boolean isAdmin) {
-        try {
-            Claims claims = extractClaims(token, isAdmin);
-            return !claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            logger.error("Error validating token", e);
-            return false;
-        }
+        VerifiedToken verified = verify(token);
+        return verified != null && verified.isAdmin() == isAdmin;
     }
     
     /**
-     * Check if token is admin token
+     * Verify a token once, picking the key from its kid header.
+     * Returns null if the token is missing, invalid or expired.
      */
-    public boolean isAdminToken(String token) {
+    public VerifiedToken verify(String token) {
+        token = cleanToken(token);
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        VerifiedToken verified = verifyUncached(token);
+        if (verified != null) {
+            tokenCache.put(token, verified);
+        }
+        return verified;
+    }
+
+    private VerifiedToken verifyUncached(String token) {
         try {
-            Claims claims = extractClaims(token, true);
-            return "admin".equals(claims.get("title"));
+            JwtKeyring.KeyedClaims verified = keyring.verify(token);
+            Claims claims = verified.getClaims();
+            if (verified.isAdmin()) {
+                // Admin key tokens are only honoured for admins
+                if (!"admin".equals(claims.get("title"))) {
+                    return null;
+                }
+                return new VerifiedToken(claims, VerifiedToken.Role.ADMIN, verified.getKeyId());
+            }
+            return new VerifiedToken(claims, VerifiedToken.Role.USER, verified.getKeyId());
         } catch (Exception e) {
-            logger.error("Error checking if token is admin token {}", e);
-            return false;
+            logger.info("Token failed verification: {}", e.getMessage());
+            return null;
         }
     }
     
@@ -184,9 +137,7 @@ public class JWTUtil {
      * Clean Bearer prefix from token
      */
     public String cleanToken(String token) {
-        logger.info("cleanToken called with token: {}", token);
         if (token != null && token.startsWith("Bearer ")) {
-            logger.info("Bearer prefix found, removing", token.substring(7));
             return token.substring(7);
         }
         return token;
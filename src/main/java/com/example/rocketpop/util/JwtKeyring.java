@@ -0,0 +1,555 @@
+package com.example.rocketpop.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.crypto.SecretKey;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds the signing and verification keys used by JWTUtil, indexed by kid.
+ * Every token is stamped with the kid of the key that signed it and is
+ * verified with a single map lookup on that kid.
+ *
+ * The keys from jwt.user.secret and jwt.admin.secret (and the ES256 pair when
+ * jwt.user.algorithm=ES256) are always present. More keys can be loaded from
+ * jwt.keys.location, either one .properties file or a directory of them, one
+ * key per file:
+ *
+ * <pre>
+ * kid=user-2026-10
+ * purpose=user          # user or admin
+ * alg=HS256             # HS256 or ES256
+ * status=active         # active keys sign new tokens, retiring keys only verify
+ * secret=...            # base64, HS256
+ * private-key=...       # base64 PKCS#8, ES256 (not needed when retiring)
+ * public-key=...        # base64 X.509, ES256
+ * </pre>
+ *
+ * The location is polled every jwt.keys.reload-interval-seconds. To rotate,
+ * add a new active key and mark the old one retiring, then delete the old
+ * file once its tokens have expired. Outstanding tokens keep verifying the
+ * whole time so nobody is logged out.
+ */
+@Component
+public class JwtKeyring {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtKeyring.class);
+
+    /** kid of the jwt.user.secret key, also assumed for tokens with no kid */
+    public static final String USER_KEY_ID = "user";
+
+    /** kid of the built in ES256 user key */
+    public static final String USER_EC_KEY_ID = "user-es256";
+
+    /** kid of the jwt.admin.secret key */
+    public static final String ADMIN_KEY_ID = "admin";
+
+    private final SecretKey userKey;
+    private final SecretKey adminKey;
+    private final List<KeyEntry> builtinKeys;
+    private final Path keysLocation;
+    private final long reloadIntervalSeconds;
+
+    private final JwtParser userParser;
+    private final JwtParser adminParser;
+    private final JwtParser legacyAdminParser;
+    // Picks the key from the kid header so a token is only verified once
+    private final JwtParser locatingParser;
+
+    private volatile Snapshot snapshot;
+    private volatile Map<Path, Long> loadedFiles = Collections.emptyMap();
+    private ScheduledExecutorService reloader;
+
+    // Tokens verified with a key that is later removed must not stay cached
+    @Autowired(required = false)
+    private VerifiedTokenCache tokenCache;
+
+    public JwtKeyring(String userSecret, String adminSecret) {
+        this(userSecret, adminSecret, "HS256", "", "", false, "", 30);
+    }
+
+    @Autowired
+    public JwtKeyring(
+            @Value("${jwt.user.secret}") String userSecret,
+            @Value("${jwt.admin.secret}") String adminSecret,
+            @Value("${jwt.user.algorithm:HS256}") String userAlgorithm,
+            @Value("${jwt.user.ec.private-key:}") String userEcPrivateKey,
+            @Value("${jwt.user.ec.public-key:}") String userEcPublicKey,
+            @Value("${jwt.user.ec.generate:false}") boolean generateUserEcKeys,
+            @Value("${jwt.keys.location:}") String keysLocation,
+            @Value("${jwt.keys.reload-interval-seconds:30}") long reloadIntervalSeconds) {
+        this.userKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(userSecret));
+        this.adminKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(adminSecret));
+
+        List<KeyEntry> builtin = new ArrayList<>();
+        if ("ES256".equalsIgnoreCase(userAlgorithm)) {
+            KeyPair pair = loadBuiltinEcKeys(userEcPrivateKey, userEcPublicKey, generateUserEcKeys);
+            builtin.add(new KeyEntry(USER_EC_KEY_ID, false, true, pair.getPublic(), pair.getPrivate()));
+            builtin.add(new KeyEntry(USER_KEY_ID, false, false, userKey, null));
+        } else if ("HS256".equalsIgnoreCase(userAlgorithm)) {
+            builtin.add(new KeyEntry(USER_KEY_ID, false, true, userKey, userKey));
+        } else {
+            throw new IllegalArgumentException("Unsupported jwt.user.algorithm: " + userAlgorithm);
+        }
+        builtin.add(new KeyEntry(ADMIN_KEY_ID, true, true, adminKey, adminKey));
+        this.builtinKeys = Collections.unmodifiableList(builtin);
+        this.keysLocation = keysLocation.isEmpty() ? null : Paths.get(keysLocation);
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+
+        Map<Path, Long> files = scan();
+        this.snapshot = new Snapshot(merge(loadKeyFiles(files.keySet())));
+        this.loadedFiles = files;
+
+        this.userParser = Jwts.parser().keyLocator(locator(false)).build();
+        this.adminParser = Jwts.parser().keyLocator(locator(true)).build();
+        this.legacyAdminParser = Jwts.parser().verifyWith(adminKey).build();
+        this.locatingParser = Jwts.parser().keyLocator(locator(null)).build();
+    }
+
+    @PostConstruct
+    public void startReloading() {
+        if (keysLocation == null || reloadIntervalSeconds <= 0) {
+            return;
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jwt-keyring-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reload, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopReloading() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Re-read jwt.keys.location if any file in it was added, removed or
+     * modified. A bad file is logged and the previous keys are kept.
+     */
+    public void reload() {
+        try {
+            Map<Path, Long> files = scan();
+            if (files.equals(loadedFiles)) {
+                return;
+            }
+            Snapshot previous = snapshot;
+            Snapshot next = new Snapshot(merge(loadKeyFiles(files.keySet())));
+            snapshot = next;
+            loadedFiles = files;
+            LOGGER.info("Reloaded JWT keys from {}, active user key {}, active admin key {}",
+                    keysLocation, next.userSigning.kid, next.adminSigning.kid);
+
+            Set<String> removed = new HashSet<>(previous.byKid.keySet());
+            removed.removeAll(next.byKid.keySet());
+            if (!removed.isEmpty() && tokenCache != null) {
+                tokenCache.invalidateIf(token -> removed.contains(token.getKeyId()));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not reload JWT keys from {}, keeping previous keys", keysLocation, e);
+        }
+    }
+
+    /**
+     * Get the HMAC key configured in jwt.user.secret or jwt.admin.secret
+     */
+    public SecretKey getKey(boolean isAdmin) {
+        return isAdmin ? adminKey : userKey;
+    }
+
+    /**
+     * Get the active key new user or admin tokens are signed with
+     */
+    public KeyEntry getSigningKey(boolean isAdmin) {
+        Snapshot current = snapshot;
+        return isAdmin ? current.adminSigning : current.userSigning;
+    }
+
+    /**
+     * Get the kid of the active user or admin key
+     */
+    public String getKeyId(boolean isAdmin) {
+        return getSigningKey(isAdmin).kid;
+    }
+
+    /**
+     * Get the pre-built parser that only accepts user or only admin keys
+     */
+    public JwtParser getParser(boolean isAdmin) {
+        return isAdmin ? adminParser : userParser;
+    }
+
+    /**
+     * Public keys relying apps may verify user tokens with, as JWK objects
+     */
+    public List<Map<String, Object>> getJwks() {
+        return snapshot.jwks;
+    }
+
+    /**
+     * Strong ETag over the published JWKS
+     */
+    public String getJwksETag() {
+        return snapshot.jwksETag;
+    }
+
+    /**
+     * Verify a token with the key named by its kid header. Returns the key
+     * that verified the token along with its claims. Throws the usual jjwt
+     * exceptions if the token is invalid or expired.
+     */
+    public KeyedClaims verify(String token) {
+        try {
+            Jws<Claims> jws = locatingParser.parseSignedClaims(token);
+            String kid = jws.getHeader().getKeyId();
+            KeyEntry entry = snapshot.byKid.get(kid != null ? kid : USER_KEY_ID);
+            return new KeyedClaims(entry != null ? entry.kid : USER_KEY_ID, entry != null && entry.admin,
+                    jws.getPayload());
+        } catch (SignatureException e) {
+            // Admin tokens issued before kid stamping have no header to go by,
+            // a token that names its key has already had its one check
+            if (hasKeyId(token)) {
+                throw e;
+            }
+            return new KeyedClaims(ADMIN_KEY_ID, true, legacyAdminParser.parseSignedClaims(token).getPayload());
+        }
+    }
+
+    /**
+     * Key locator over the current snapshot. Tokens without a kid predate
+     * kid stamping and are checked against the jwt.user.secret key, or the
+     * jwt.admin.secret key when admin is true. When admin is set, keys of
+     * the other purpose are rejected.
+     */
+    private Locator<Key> locator(Boolean admin) {
+        return header -> {
+            String kid = keyIdOf(header);
+            KeyEntry entry = snapshot.byKid.get(kid != null ? kid : Boolean.TRUE.equals(admin) ? ADMIN_KEY_ID : USER_KEY_ID);
+            if (entry == null || (admin != null && entry.admin != admin)) {
+                throw new SignatureException("Unknown key id " + kid);
+            }
+            return entry.verifyKey;
+        };
+    }
+
+    private static String keyIdOf(Header header) {
+        return header instanceof ProtectedHeader ? ((ProtectedHeader) header).getKeyId() : null;
+    }
+
+    // Only called once jjwt has parsed the header, so it is valid base64url JSON
+    private static boolean hasKeyId(String token) {
+        String header = token.substring(0, token.indexOf('.'));
+        return new JSONObject(new String(Base64.getUrlDecoder().decode(header), StandardCharsets.UTF_8)).has("kid");
+    }
+
+    /**
+     * Built in keys first, then file keys. File keys replace built in keys
+     * with the same kid, and an active file key takes over signing from the
+     * built in key of the same purpose.
+     */
+    private List<KeyEntry> merge(List<KeyEntry> fileKeys) {
+        Map<String, KeyEntry> byKid = new LinkedHashMap<>();
+        boolean userOverridden = false;
+        boolean adminOverridden = false;
+        for (KeyEntry entry : fileKeys) {
+            if (entry.active) {
+                userOverridden |= !entry.admin;
+                adminOverridden |= entry.admin;
+            }
+        }
+        for (KeyEntry entry : builtinKeys) {
+            boolean overridden = entry.admin ? adminOverridden : userOverridden;
+            byKid.put(entry.kid, overridden ? entry.retired() : entry);
+        }
+        for (KeyEntry entry : fileKeys) {
+            byKid.put(entry.kid, entry);
+        }
+        return new ArrayList<>(byKid.values());
+    }
+
+    private Map<Path, Long> scan() {
+        if (keysLocation == null) {
+            return Collections.emptyMap();
+        }
+        Map<Path, Long> files = new TreeMap<>();
+        try {
+            if (Files.isDirectory(keysLocation)) {
+                try (Stream<Path> paths = Files.list(keysLocation)) {
+                    for (Path path : (Iterable<Path>) paths::iterator) {
+                        if (path.getFileName().toString().endsWith(".properties") && Files.isRegularFile(path)) {
+                            files.put(path, Files.getLastModifiedTime(path).toMillis());
+                        }
+                    }
+                }
+            } else if (Files.isRegularFile(keysLocation)) {
+                files.put(keysLocation, Files.getLastModifiedTime(keysLocation).toMillis());
+            } else {
+                throw new IllegalStateException("jwt.keys.location does not exist: " + keysLocation);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read jwt.keys.location " + keysLocation, e);
+        }
+        return files;
+    }
+
+    private static List<KeyEntry> loadKeyFiles(Set<Path> files) {
+        List<KeyEntry> keys = new ArrayList<>();
+        for (Path file : files) {
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read JWT key file " + file, e);
+            }
+            try {
+                keys.add(parseKey(props, file));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Invalid JWT key file " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return keys;
+    }
+
+    private static KeyEntry parseKey(Properties props, Path file) throws IllegalArgumentException {
+        String fileName = file.getFileName().toString();
+        String kid = props.getProperty("kid", fileName.substring(0, fileName.length() - ".properties".length())).trim();
+        String purpose = props.getProperty("purpose", "user").trim();
+        String alg = props.getProperty("alg", "HS256").trim();
+        String status = props.getProperty("status", "active").trim();
+        if (!"user".equals(purpose) && !"admin".equals(purpose)) {
+            throw new IllegalArgumentException("purpose must be user or admin");
+        }
+        if (!"active".equals(status) && !"retiring".equals(status)) {
+            throw new IllegalArgumentException("status must be active or retiring");
+        }
+        boolean admin = "admin".equals(purpose);
+        boolean active = "active".equals(status);
+
+        if ("HS256".equalsIgnoreCase(alg)) {
+            SecretKey secret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(required(props, "secret")));
+            return new KeyEntry(kid, admin, active, secret, active ? secret : null);
+        }
+        if ("ES256".equalsIgnoreCase(alg)) {
+            if (admin) {
+                throw new IllegalArgumentException("admin keys must be HS256");
+            }
+            try {
+                KeyFactory factory = KeyFactory.getInstance("EC");
+                PublicKey publicKey = factory.generatePublic(
+                        new X509EncodedKeySpec(Base64.getDecoder().decode(required(props, "public-key"))));
+                Key privateKey = active
+                        ? factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(required(props, "private-key"))))
+                        : null;
+                return new KeyEntry(kid, false, active, publicKey, privateKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException("bad EC key", e);
+            }
+        }
+        throw new IllegalArgumentException("alg must be HS256 or ES256");
+    }
+
+    private static String required(Properties props, String name) {
+        String value = props.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value.trim();
+    }
+
+    /**
+     * The configured ES256 pair. Without one, startup fails unless
+     * jwt.user.ec.generate is set, as a throwaway pair would log every user
+     * out on restart and disagree between instances. Only for dev and tests.
+     */
+    private static KeyPair loadBuiltinEcKeys(String privateKey, String publicKey, boolean generate) {
+        if (privateKey.isEmpty() || publicKey.isEmpty()) {
+            if (!generate) {
+                throw new IllegalStateException(
+                        "jwt.user.algorithm=ES256 needs jwt.user.ec.private-key and jwt.user.ec.public-key");
+            }
+            LOGGER.warn("jwt.user.ec keys not set, generating a throwaway ES256 key pair (jwt.user.ec.generate=true)");
+            return Jwts.SIG.ES256.keyPair().build();
+        }
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            return new KeyPair(
+                    factory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey))),
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey))));
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid jwt.user.ec key pair", e);
+        }
+    }
+
+    private static Map<String, Object> toJwk(String kid, ECPublicKey key) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("x", encoder.encodeToString(coordinate(key.getW().getAffineX())));
+        jwk.put("y", encoder.encodeToString(coordinate(key.getW().getAffineY())));
+        return Collections.unmodifiableMap(jwk);
+    }
+
+    // P-256 coordinates are exactly 32 bytes, BigInteger may add a sign byte or drop leading zeros
+    private static byte[] coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+        return fixed;
+    }
+
+    private static String etagOf(List<Map<String, Object>> jwks) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(jwks.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * One key in the ring. Retiring keys have no signing key.
+     */
+    public static final class KeyEntry {
+        private final String kid;
+        private final boolean admin;
+        private final boolean active;
+        private final Key verifyKey;
+        private final Key signingKey;
+
+        KeyEntry(String kid, boolean admin, boolean active, Key verifyKey, Key signingKey) {
+            this.kid = kid;
+            this.admin = admin;
+            this.active = active;
+            this.verifyKey = verifyKey;
+            this.signingKey = signingKey;
+        }
+
+        KeyEntry retired() {
+            return new KeyEntry(kid, admin, false, verifyKey, null);
+        }
+
+        public String getKid() { return kid; }
+        public boolean isAdmin() { return admin; }
+        public boolean isActive() { return active; }
+        public Key getSigningKey() { return signingKey; }
+    }
+
+    /**
+     * Immutable view of the ring, swapped as a whole on reload
+     */
+    private static final class Snapshot {
+        private final Map<String, KeyEntry> byKid;
+        private final KeyEntry userSigning;
+        private final KeyEntry adminSigning;
+        private final List<Map<String, Object>> jwks;
+        private final String jwksETag;
+
+        Snapshot(List<KeyEntry> keys) {
+            Map<String, KeyEntry> map = new HashMap<>();
+            KeyEntry user = null;
+            KeyEntry admin = null;
+            List<Map<String, Object>> publicKeys = new ArrayList<>();
+            for (KeyEntry entry : keys) {
+                map.put(entry.kid, entry);
+                if (entry.active) {
+                    // Several active keys for one purpose: the highest kid signs
+                    if (entry.admin && (admin == null || entry.kid.compareTo(admin.kid) > 0)) {
+                        admin = entry;
+                    } else if (!entry.admin && (user == null || entry.kid.compareTo(user.kid) > 0)) {
+                        user = entry;
+                    }
+                }
+                if (!entry.admin && entry.verifyKey instanceof ECPublicKey) {
+                    publicKeys.add(toJwk(entry.kid, (ECPublicKey) entry.verifyKey));
+                }
+            }
+            if (user == null || admin == null) {
+                throw new IllegalStateException("JWT keyring needs an active user key and an active admin key");
+            }
+            this.byKid = Collections.unmodifiableMap(map);
+            this.userSigning = user;
+            this.adminSigning = admin;
+            this.jwks = Collections.unmodifiableList(publicKeys);
+            this.jwksETag = etagOf(jwks);
+        }
+    }
+
+    /**
+     * Claims together with the key that verified them
+     */
+    public static final class KeyedClaims {
+        private final String keyId;
+        private final boolean admin;
+        private final Claims claims;
+
+        KeyedClaims(String keyId, boolean admin, Claims claims) {
+            this.keyId = keyId;
+            this.admin = admin;
+            this.claims = claims;
+        }
+
+        public String getKeyId() { return keyId; }
+        public boolean isAdmin() { return admin; }
+        public Claims getClaims() { return claims; }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.rocketpop.util;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.rocketpop.model.AuthResult;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Login rate limiting, checked before any decryption, hashing or database
+ * work. Every source IP and every username has a token bucket, one token per
+ * attempt, and a failure score that halves every failure half life. When a
+ * score reaches its lockout threshold the key is refused outright for the
+ * lockout period. A successful login clears the username's score.
+ *
+ * Usernames are only tracked once someone gets a real account's password
+ * wrong. Attempts on unknown usernames count against the address alone, so
+ * spraying made up names cannot fill the table and push real accounts into
+ * the shared overflow entries.
+ *
+ * State lives in a fixed number of stripes, each a ConcurrentHashMap of
+ * entries updated by compare and swap, so callers never block each other.
+ * Each stripe holds at most its share of max-entries; keys that arrive when
+ * a stripe is full share that stripe's overflow entry, which throttles them
+ * together rather than letting them through. Idle entries, with a full
+ * bucket, a negligible score and no lockout, are removed in the background.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginThrottle.class);
+
+    private static final int STRIPES = 64;
+
+    // A failure score below this is treated as no failures at all
+    private static final double NEGLIGIBLE_SCORE = 0.01;
+
+    // New entries are unlocked since this long before they were made, so a caller whose now was read earlier sees them unlocked too
+    private static final long LONG_AGO = Long.MAX_VALUE / 2;
+
+    /**
+     * Token bucket size, refill rate and failure threshold for one kind of key
+     */
+    public static final class Limit {
+        final double burst;
+        final double tokensPerNano;
+        final double lockoutFailures;
+
+        public Limit(int burst, double perMinute, int lockoutFailures) {
+            this.burst = Math.max(1, burst);
+            this.tokensPerNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.lockoutFailures = Math.max(1, lockoutFailures);
+        }
+    }
+
+    private final Table usernames;
+    private final Table addresses;
+    private final long lockoutNanos;
+    private final double halfLifeNanos;
+    private final long expiryIntervalSeconds;
+    private final LongSupplier clock;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+
+    private ScheduledExecutorService expirer;
+
+    @Autowired
+    public LoginThrottle(@Value("${login.throttle.username.burst:5}") int usernameBurst,
+                         @Value("${login.throttle.username.per-minute:5}") double usernamePerMinute,
+                         @Value("${login.throttle.username.lockout-failures:10}") int usernameLockoutFailures,
+                         @Value("${login.throttle.ip.burst:20}") int ipBurst,
+                         @Value("${login.throttle.ip.per-minute:60}") double ipPerMinute,
+                         @Value("${login.throttle.ip.lockout-failures:50}") int ipLockoutFailures,
+                         @Value("${login.throttle.lockout-seconds:300}") long lockoutSeconds,
+                         @Value("${login.throttle.failure-half-life-seconds:600}") long failureHalfLifeSeconds,
+                         @Value("${login.throttle.max-entries:100000}") int maxEntries,
+                         @Value("${login.throttle.expiry-interval-seconds:60}") long expiryIntervalSeconds) {
+        this(new Limit(usernameBurst, usernamePerMinute, usernameLockoutFailures),
+             new Limit(ipBurst, ipPerMinute, ipLockoutFailures),
+             lockoutSeconds, failureHalfLifeSeconds, maxEntries, expiryIntervalSeconds, System::nanoTime);
+    }
+
+    LoginThrottle(Limit usernameLimit, Limit ipLimit, long lockoutSeconds, long failureHalfLifeSeconds,
+                  int maxEntries, long expiryIntervalSeconds, LongSupplier clock) {
+        this.lockoutNanos = TimeUnit.SECONDS.toNanos(lockoutSeconds);
+        this.halfLifeNanos = TimeUnit.SECONDS.toNanos(Math.max(1, failureHalfLifeSeconds));
+        this.expiryIntervalSeconds = expiryIntervalSeconds;
+        // Set before the tables, their overflow entries read it
+        this.clock = clock;
+        this.usernames = new Table(usernameLimit, maxEntries);
+        this.addresses = new Table(ipLimit, maxEntries);
+    }
+
+    @PostConstruct
+    public void startExpiry() {
+        if (expiryIntervalSeconds <= 0) {
+            return;
+        }
+        expirer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "login-throttle-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirer.scheduleWithFixedDelay(this::expireIdle, expiryIntervalSeconds, expiryIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopExpiry() {
+        if (expirer != null) {
+            expirer.shutdownNow();
+        }
+    }
+
+    /**
+     * Take one attempt from the address's and the username's buckets.
+     * @return 0 if the attempt may go ahead, otherwise the seconds to wait before retrying
+     */
+    public long acquire(String username, String address) {
+        long now = clock.getAsLong();
+        // The address is checked first, so one source cannot drain a username's bucket once it is throttled itself
+        long wait = addresses.entry(addressKey(address), now).acquire(now);
+        if (wait == 0) {
+            Entry user = usernames.existing(usernameKey(username), true);
+            if (user != null) {
+                wait = user.acquire(now);
+            }
+        }
+        if (wait == 0) {
+            return 0;
+        }
+        rejections.increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Record the outcome of an attempt that acquire let through. A wrong
+     * password counts against the username and the address, an unknown
+     * username against the address only.
+     */
+    public void record(String username, String address, AuthResult result) {
+        long now = clock.getAsLong();
+        if (result instanceof AuthResult.Success) {
+            // Never the overflow entry, one account's success must not clear failures it shares with others
+            Entry user = usernames.existing(usernameKey(username), false);
+            if (user != null) {
+                user.clearFailures();
+            }
+            return;
+        }
+        if (result instanceof AuthResult.BadPassword && usernames.entry(usernameKey(username), now).fail(now)) {
+            lockouts.increment();
+            LOGGER.warn("Username {} locked out after repeated failed logins", username);
+        }
+        if (addresses.entry(addressKey(address), now).fail(now)) {
+            lockouts.increment();
+            LOGGER.warn("Address {} locked out after repeated failed logins", address);
+        }
+    }
+
+    /**
+     * Remove entries that would behave exactly like a new one
+     */
+    public void expireIdle() {
+        long now = clock.getAsLong();
+        int removed = usernames.expireIdle(now) + addresses.expireIdle(now);
+        if (removed > 0) {
+            LOGGER.info("Login throttle expired {} idle entries", removed);
+        }
+    }
+
+    public long getRejections() { return rejections.sum(); }
+    public long getLockouts() { return lockouts.sum(); }
+    public int getEntryCount() { return usernames.size() + addresses.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("login.throttle.rejections", this, LoginThrottle::getRejections).register(registry);
+        FunctionCounter.builder("login.throttle.lockouts", this, LoginThrottle::getLockouts).register(registry);
+        Gauge.builder("login.throttle.entries", this, LoginThrottle::getEntryCount).register(registry);
+    }
+
+    private static String usernameKey(String username) {
+        // MySQL compares usernames case insensitively, so "Admin" and "admin" share a bucket
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
+
+    private static String addressKey(String address) {
+        return address == null ? "" : address;
+    }
+
+    /**
+     * Entries for one kind of key, split into stripes
+     */
+    private final class Table {
+        private final Limit limit;
+        private final int maxPerStripe;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        Table(Limit limit, int maxEntries) {
+            this.limit = limit;
+            this.maxPerStripe = Math.max(1, maxEntries / STRIPES);
+            long now = clock.getAsLong();
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(new Entry(limit, now));
+            }
+        }
+
+        /**
+         * The key's entry, or null if it is not tracked. Never creates one.
+         * @param orOverflow Give the overflow entry for an untracked key in a
+         *     full stripe, as the key may be one of those sharing it
+         */
+        Entry existing(String key, boolean orOverflow) {
+            Stripe stripe = stripeOf(key);
+            Entry entry = stripe.entries.get(key);
+            if (entry == null && orOverflow && stripe.size.get() >= maxPerStripe) {
+                return stripe.overflow;
+            }
+            return entry;
+        }
+
+        Entry entry(String key, long now) {
+            Stripe stripe = stripeOf(key);
+            Entry entry = stripe.entries.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            if (stripe.size.get() >= maxPerStripe) {
+                return stripe.overflow;
+            }
+            Entry created = new Entry(limit, now);
+            entry = stripe.entries.putIfAbsent(key, created);
+            if (entry != null) {
+                return entry;
+            }
+            stripe.size.incrementAndGet();
+            return created;
+        }
+
+        private Stripe stripeOf(String key) {
+            int h = key.hashCode();
+            return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        }
+
+        int expireIdle(long now) {
+            int removed = 0;
+            for (Stripe stripe : stripes) {
+                for (var mapping : stripe.entries.entrySet()) {
+                    // A caller still holding the entry may lose one update, which is harmless for an idle key
+                    if (mapping.getValue().isIdle(now) && stripe.entries.remove(mapping.getKey(), mapping.getValue())) {
+                        stripe.size.decrementAndGet();
+                        removed++;
+                    }
+                }
+            }
+            return removed;
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.size.get();
+            }
+            return size;
+        }
+    }
+
+    private static final class Stripe {
+        final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+        final AtomicInteger size = new AtomicInteger();
+        final Entry overflow;
+
+        Stripe(Entry overflow) {
+            this.overflow = overflow;
+        }
+    }
+
+    /**
+     * Immutable snapshot of one key's bucket and failure score. Timestamps are System.nanoTime.
+     */
+    private record State(double tokens, long refilledAt, double failures, long failedAt, long lockedUntil) {}
+
+    private final class Entry {
+        private final Limit limit;
+        private final AtomicReference<State> state;
+
+        Entry(Limit limit, long now) {
+            this.limit = limit;
+            this.state = new AtomicReference<>(new State(limit.burst, now, 0, now, now - LONG_AGO));
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise nanoseconds until one is available
+         */
+        long acquire(long now) {
+            while (true) {
+                State current = state.get();
+                if (current.lockedUntil() - now > 0) {
+                    return current.lockedUntil() - now;
+                }
+                double tokens = refill(current, now);
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / limit.tokensPerNano);
+                }
+                State next = new State(tokens - 1, now, current.failures(), current.failedAt(), current.lockedUntil());
+                if (state.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Add a failure to the decayed score, locking the key out when it reaches the threshold
+         * @return true if this failure started a lockout
+         */
+        boolean fail(long now) {
+            while (true) {
+                State current = state.get();
+                double failures = decay(current, now) + 1;
+                // Failures a moment apart have decayed a little, so N of them in a row still count as N
+                boolean lock = failures + NEGLIGIBLE_SCORE >= limit.lockoutFailures;
+                State next = lock
+                        ? new State(current.tokens(), current.refilledAt(), 0, now, now + lockoutNanos)
+                        : new State(current.tokens(), current.refilledAt(), failures, now, current.lockedUntil());
+                if (state.compareAndSet(current, next)) {
+                    return lock;
+                }
+            }
+        }
+
+        void clearFailures() {
+            while (true) {
+                State current = state.get();
+                if (current.failures() == 0) {
+                    return;
+                }
+                State next = new State(current.tokens(), current.refilledAt(), 0, current.failedAt(), current.lockedUntil());
+                if (state.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        boolean isIdle(long now) {
+            State current = state.get();
+            return current.lockedUntil() - now <= 0
+                    && refill(current, now) >= limit.burst
+                    && decay(current, now) < NEGLIGIBLE_SCORE;
+        }
+
+        private double refill(State current, long now) {
+            // Another caller may have stored a later time than this one read
+            return Math.min(limit.burst, current.tokens() + Math.max(0, now - current.refilledAt()) * limit.tokensPerNano);
+        }
+
+        private double decay(State current, long now) {
+            if (current.failures() == 0) {
+                return 0;
+            }
+            return current.failures() * Math.pow(0.5, Math.max(0, now - current.failedAt()) / halfLifeNanos);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A password hashing algorithm that stores its own parameters. Hashes are
+ * written in PHC string format, so the password column says how it was made:
+ * <pre>
+ * $&lt;id&gt;$&lt;parameters&gt;$&lt;base64 salt&gt;$&lt;base64 hash&gt;
+ * </pre>
+ * with base64 unpadded. The parameters may span more than one field, as
+ * with the version in argon2id's "v=19$m=19456,t=2,p=1". Anything not starting with '$' is a legacy
+ * PasswordHasher.hashPassword digest with the salt in its own column.
+ */
+public interface PasswordHashAlgorithm {
+
+    /**
+     * Algorithm id, the first field of the encoded hash
+     */
+    String getId();
+
+    /**
+     * Hash a password with the current parameters
+     */
+    String hash(String password, byte[] salt);
+
+    /**
+     * Check a password against a hash made by this algorithm, with whatever
+     * parameters it was made with
+     */
+    default boolean matches(String password, String encoded) {
+        byte[] bytes = password.getBytes(StandardCharsets.UTF_8);
+        return matches(bytes, bytes.length, StoredHash.parse(encoded));
+    }
+
+    /**
+     * Check the first length bytes of a UTF-8 password against an already
+     * decoded hash made by this algorithm. Compares in constant time.
+     */
+    boolean matches(byte[] password, int length, StoredHash stored);
+
+    /**
+     * Check if a hash made by this algorithm is cheaper to compute than one
+     * made now. A costlier hash, say from an instance on a faster machine,
+     * is not weaker.
+     * @throws IllegalArgumentException if its parameters cannot be read
+     */
+    boolean isWeaker(StoredHash stored);
+
+    /**
+     * Tune the parameters so one hash takes about targetMillis on this machine
+     */
+    void calibrate(long targetMillis);
+
+    /**
+     * Current parameters, as written in the encoded hash
+     */
+    String getParameters();
+
+    /**
+     * Split an encoded hash into id, parameters, salt and hash
+     * @throws IllegalArgumentException if it is not in PHC string format
+     */
+    static String[] split(String encoded) {
+        String[] parts = encoded.split("\\$", -1);
+        // Leading '$' makes parts[0] empty
+        if (parts.length < 5 || !parts[0].isEmpty()) {
+            throw new IllegalArgumentException("Not a PHC string");
+        }
+        int last = parts.length - 1;
+        String parameters = String.join("$", Arrays.copyOfRange(parts, 2, last - 1));
+        return new String[] {parts[1], parameters, parts[last - 1], parts[last]};
+    }
+
+    static String encode(String id, String parameters, byte[] salt, byte[] hash) {
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return "$" + id + "$" + parameters + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+}
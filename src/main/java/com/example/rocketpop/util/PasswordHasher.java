@@ -1,18 +1,23 @@
 package com.example.rocketpop.util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
 import java.security.KeyFactory;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.Cipher;
 
@@ -20,20 +25,52 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
 @Service
 public class PasswordHasher {
 
     private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
 
+    private static final SecureRandom SALT_RANDOM = new SecureRandom();
+
+    private static final Map<String, PasswordHashAlgorithm> VERIFIERS = Map.of(
+            Pbkdf2PasswordHash.ID, new Pbkdf2PasswordHash(),
+            Argon2idPasswordHash.ID, new Argon2idPasswordHash());
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Stored hashes seen by matches, decoded to bytes
+    static final int MAX_DECODED_HASHES = 10_000;
+    private final Map<String, StoredHash> decodedHashes = new ConcurrentHashMap<>();
+
     @Value("${private.key}")
     private String privateKeyString;
 
     @Value("${public.key}")
     private String publicKeyString;
 
+    @Value("${password.hash.algorithm:pbkdf2}")
+    private String algorithmName = "pbkdf2";
+
+    @Value("${password.hash.target-millis:50}")
+    private long targetMillis = 50;
+
+    @Value("${password.hash.calibrate:true}")
+    private boolean calibrate;
+
+    @Value("${password.hash.argon2.memory-kib:19456}")
+    private int argon2MemoryKib = 19456;
+
+    // Hashes made by encode, and the one new hashes are checked against in needsRehash
+    private volatile PasswordHashAlgorithm algorithm = new Pbkdf2PasswordHash();
+
+    // Swapped as a whole by loadKeys, each pool holds ciphers for one key
+    private volatile CipherPool decryptCiphers = new CipherPool(Cipher.DECRYPT_MODE, null);
+    private volatile CipherPool encryptCiphers = new CipherPool(Cipher.ENCRYPT_MODE, null);
+
 
     /**
      * Decrypt username and password sent by user, then generate and return a salted hash of the password.
@@ -42,7 +79,8 @@ public class PasswordHasher {
         // Hash password
         byte[] hashedPassword = null;
         try{
-            MessageDigest md = MessageDigest.getInstance("SHA-512");
+            MessageDigest md = SCRATCH.get().sha512;
+            md.reset();
             byte[] saltBytes = Base64.getDecoder().decode(salt);
             md.update(saltBytes);
             hashedPassword = md.digest(password.getBytes(StandardCharsets.UTF_8));
@@ -53,6 +91,121 @@ public class PasswordHasher {
         return Base64.getEncoder().encodeToString(hashedPassword);
     }
 
+    /**
+     * Hash a password with the configured algorithm and a fresh salt. The
+     * result carries its own salt and parameters, so the salt column is unused.
+     */
+    public String encode(String password) {
+        byte[] salt = new byte[16];
+        SALT_RANDOM.nextBytes(salt);
+        return algorithm.hash(password, salt);
+    }
+
+    /**
+     * Check a password against a stored hash. Hashes in PHC format are checked
+     * by the algorithm named in them, anything else is a legacy hashPassword
+     * digest made with the given salt. The stored hash is decoded once and
+     * cached; the password is encoded into a per thread buffer and compared
+     * as bytes in constant time, so a legacy check allocates nothing.
+     */
+    public boolean matches(String password, String stored, String salt) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        Scratch scratch = SCRATCH.get();
+        int length = 0;
+        try {
+            StoredHash decoded = decode(stored, salt);
+            length = scratch.encode(password);
+            if (decoded.isLegacy()) {
+                MessageDigest md = scratch.sha512;
+                md.reset();
+                md.update(decoded.salt);
+                md.update(scratch.password, 0, length);
+                md.digest(scratch.digest, 0, scratch.digest.length);
+                return MessageDigest.isEqual(decoded.hash, scratch.digest);
+            }
+            return verifierFor(decoded.getId()).matches(scratch.password, length, decoded);
+        } catch (Exception e) {
+            logger.error("Error checking password: {}", e.getMessage());
+            return false;
+        } finally {
+            Arrays.fill(scratch.password, 0, length, (byte) 0);
+        }
+    }
+
+    /**
+     * Check if a stored hash was made by another algorithm, or is cheaper to
+     * compute than one encode would make now, so should be replaced the next
+     * time the password is known. A hash as costly or costlier is kept, so
+     * instances whose calibration differs do not keep rewriting each other's.
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith("$")) {
+            return true;
+        }
+        PasswordHashAlgorithm current = algorithm;
+        try {
+            StoredHash decoded = decode(stored, null);
+            return !decoded.getId().equals(current.getId()) || current.isWeaker(decoded);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    public PasswordHashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    private StoredHash decode(String stored, String salt) {
+        StoredHash decoded = decodedHashes.get(stored);
+        if (decoded != null && decoded.isFor(salt)) {
+            return decoded;
+        }
+        decoded = stored.startsWith("$") ? StoredHash.parse(stored) : StoredHash.legacy(stored, salt == null ? "" : salt);
+        if (decodedHashes.size() >= MAX_DECODED_HASHES) {
+            // Cheaper than tracking recency; hot users are decoded again on their next login
+            decodedHashes.clear();
+        }
+        decodedHashes.put(stored, decoded);
+        return decoded;
+    }
+
+    private PasswordHashAlgorithm verifierFor(String id) {
+        PasswordHashAlgorithm current = algorithm;
+        if (id.equals(current.getId())) {
+            return current;
+        }
+        // Parameters come from the hash itself, so a default instance will do
+        PasswordHashAlgorithm verifier = VERIFIERS.get(id);
+        if (verifier == null) {
+            throw new IllegalArgumentException("Unknown password hash algorithm: " + id);
+        }
+        return verifier;
+    }
+
+    /**
+     * Pick the algorithm from password.hash.algorithm and, unless
+     * password.hash.calibrate is off, tune it to password.hash.target-millis
+     * on this machine. Existing hashes are left as they are and upgraded by
+     * needsRehash on the next login.
+     */
+    public void configureAlgorithm() {
+        PasswordHashAlgorithm configured;
+        if ("argon2id".equalsIgnoreCase(algorithmName)) {
+            configured = new Argon2idPasswordHash(argon2MemoryKib, Argon2idPasswordHash.DEFAULT_PASSES, 1);
+        } else if ("pbkdf2".equalsIgnoreCase(algorithmName)) {
+            configured = new Pbkdf2PasswordHash();
+        } else {
+            throw new IllegalStateException("Unknown password.hash.algorithm: " + algorithmName);
+        }
+        if (calibrate) {
+            configured.calibrate(targetMillis);
+        }
+        logger.info("Password hashing with {} {}", configured.getId(), configured.getParameters());
+        algorithm = configured;
+    }
+
     public String getRandomSalt() {
         SecureRandom rng = new SecureRandom();
         byte[] salt = new byte[16];
@@ -65,65 +218,170 @@ public class PasswordHasher {
         return Base64.getEncoder().encodeToString(salt);
     }
 
-    public String rsaDecrypt(String ciphertext) {
+    @PostConstruct
+    public void init() {
+        loadKeys();
+        configureAlgorithm();
+    }
+
+    /**
+     * Parse private.key and public.key once. Called at startup, and again if
+     * the key strings are changed. A key that fails to parse is left unset, so
+     * rsaDecrypt or rsaEncrypt return null instead of throwing.
+     */
+    public void loadKeys() {
         Base64.Decoder decoder = Base64.getDecoder();
-        String plaintext = null;
         PrivateKey privateKey = null;
+        PublicKey publicKey = null;
 
         try {
             KeyFactory factory = KeyFactory.getInstance("RSA");
-            byte[] privateKeyByte = decoder.decode(privateKeyString);
-            privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(privateKeyByte));
+            privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(privateKeyString)));
         } catch (Exception e) {
-            logger.error("Error getting private key {}", e);
+            logger.error("Error getting private key: {}", e.getMessage());
         }
 
+        try {
+            if (publicKeyString == null) {
+                throw new IllegalStateException("publicKeyString is null");
+            }
+            KeyFactory factory = KeyFactory.getInstance("RSA");
+            publicKey = factory.generatePublic(new X509EncodedKeySpec(decoder.decode(publicKeyString)));
+        } catch (Exception e) {
+            logger.error("Error getting public key: {}", e.getMessage());
+        }
+
+        decryptCiphers = new CipherPool(Cipher.DECRYPT_MODE, privateKey);
+        encryptCiphers = new CipherPool(Cipher.ENCRYPT_MODE, publicKey);
+    }
+
+    public String rsaDecrypt(String ciphertext) {
+        String plaintext = null;
+        CipherPool pool = decryptCiphers;
+
         // Decrypt ciphertext
         try {
-            byte[] cipherBytes = decoder.decode(ciphertext);
-            Cipher decryptCipher = Cipher.getInstance("RSA");
-            decryptCipher.init(Cipher.DECRYPT_MODE, privateKey);
+            byte[] cipherBytes = Base64.getDecoder().decode(ciphertext);
+            Cipher decryptCipher = pool.borrow();
             byte[] decryptBytes = decryptCipher.doFinal(cipherBytes);
+            pool.release(decryptCipher);
             plaintext = new String(decryptBytes, StandardCharsets.UTF_8);
         } catch (Exception e) {
-            logger.error("Error decrypting password{}", e);
+            logger.error("Error decrypting password: {}", e.getMessage());
         }
 
         return plaintext;
     }
 
     public String rsaEncrypt(String plaintext) {
-        Base64.Encoder encoder = Base64.getEncoder();
-        Base64.Decoder decoder = Base64.getDecoder();
         String ciphertext = null;
-        PublicKey publicKey = null;
-
-        logger.info("private key string: {}", privateKeyString);
-        logger.info("public key string: {}", publicKeyString);
-        try {
-            if (publicKeyString == null) {
-                logger.error("publicKeyString is null! Check Spring property injection and bean instantiation.");
-                throw new IllegalStateException("publicKeyString is null");
-            }
-            logger.info("public key string: {}", publicKeyString);
-            KeyFactory factory = KeyFactory.getInstance("RSA");
-            byte[] publicKeyByte = decoder.decode(publicKeyString);
-            publicKey = factory.generatePublic(new X509EncodedKeySpec(publicKeyByte));
-        } catch (Exception e) {
-            logger.error("Error getting public key {}", e);
-        }
+        CipherPool pool = encryptCiphers;
 
         // Encrypt plaintext
         try {
-            Cipher encryptCipher = Cipher.getInstance("RSA");
-            encryptCipher.init(Cipher.ENCRYPT_MODE, publicKey);
-            byte[] secretByte = plaintext.getBytes(StandardCharsets.UTF_8);
-            byte[] encByte = encryptCipher.doFinal(secretByte);
-            ciphertext = encoder.encodeToString(encByte);
+            Cipher encryptCipher = pool.borrow();
+            byte[] encByte = encryptCipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            pool.release(encryptCipher);
+            ciphertext = Base64.getEncoder().encodeToString(encByte);
         } catch (Exception e) {
-            logger.error("Error ecrypting password {}", e);
+            logger.error("Error encrypting password: {}", e.getMessage());
         }
 
         return ciphertext;
     }
+
+    /**
+     * Initialised ciphers for one key. A cipher resets itself after doFinal,
+     * so it can be handed to the next caller without another init. One that
+     * threw is never released, in case it was left mid operation.
+     */
+    private static final class CipherPool {
+        private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+        private final int mode;
+        private final Key key;
+        private final ConcurrentLinkedQueue<Cipher> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        CipherPool(int mode, Key key) {
+            this.mode = mode;
+            this.key = key;
+        }
+
+        Cipher borrow() throws GeneralSecurityException {
+            Cipher cipher = idle.poll();
+            if (cipher != null) {
+                idleCount.decrementAndGet();
+                return cipher;
+            }
+            if (key == null) {
+                throw new InvalidKeyException("RSA key is not loaded");
+            }
+            cipher = Cipher.getInstance("RSA");
+            cipher.init(mode, key);
+            return cipher;
+        }
+
+        void release(Cipher cipher) {
+            if (idleCount.incrementAndGet() <= MAX_IDLE) {
+                idle.offer(cipher);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Per thread digest and buffers for matches and hashPassword
+     */
+    private static final class Scratch {
+        final MessageDigest sha512;
+        final byte[] digest = new byte[64];
+        byte[] password = new byte[64];
+
+        Scratch() {
+            try {
+                sha512 = MessageDigest.getInstance("SHA-512");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-512 not available", e);
+            }
+        }
+
+        /**
+         * UTF-8 encode into the password buffer, growing it if needed, and
+         * return the number of bytes written. Unpaired surrogates become '?'
+         * as they do with String.getBytes.
+         */
+        int encode(String text) {
+            int max = text.length() * 3;
+            if (password.length < max) {
+                password = new byte[max];
+            }
+            byte[] out = password;
+            int n = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xc0 | (c >> 6));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = (byte) (0xf0 | (cp >> 18));
+                    out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = (byte) '?';
+                } else {
+                    out[n++] = (byte) (0xe0 | (c >> 12));
+                    out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            return n;
+        }
+    }
 }
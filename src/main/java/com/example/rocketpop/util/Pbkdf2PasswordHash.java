@@ -0,0 +1,191 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PBKDF2 with HMAC-SHA256, encoded as $pbkdf2-sha256$i=&lt;iterations&gt;$salt$hash
+ */
+public class Pbkdf2PasswordHash implements PasswordHashAlgorithm {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Pbkdf2PasswordHash.class);
+
+    public static final String ID = "pbkdf2-sha256";
+
+    // OWASP 2023 recommendation, used until calibrate runs
+    static final int DEFAULT_ITERATIONS = 600_000;
+    // Calibration never goes below this, however slow the machine
+    static final int MIN_ITERATIONS = 10_000;
+    private static final int HASH_BYTES = 32;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private volatile int iterations;
+
+    public Pbkdf2PasswordHash() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public Pbkdf2PasswordHash(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String getParameters() {
+        return "i=" + iterations;
+    }
+
+    @Override
+    public String hash(String password, byte[] salt) {
+        int rounds = iterations;
+        return PasswordHashAlgorithm.encode(ID, "i=" + rounds, salt, derive(password, salt, rounds));
+    }
+
+    @Override
+    public boolean matches(byte[] password, int length, StoredHash stored) {
+        int rounds = parseIterations(stored.getParameters());
+        if (length == 0 || stored.hash.length != HASH_BYTES) {
+            // Not the single block HMAC loop below, let the JDK do it
+            String plain = new String(password, 0, length, StandardCharsets.UTF_8);
+            byte[] derived = derive(plain, stored.salt, rounds, stored.hash.length * 8);
+            return MessageDigest.isEqual(stored.hash, derived);
+        }
+
+        Scratch scratch = SCRATCH.get();
+        try {
+            scratch.mac.init(new SecretKeySpec(password, 0, length, "HmacSHA256"));
+            deriveBlock(scratch, stored.salt, rounds);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+        return MessageDigest.isEqual(stored.hash, scratch.block);
+    }
+
+    /**
+     * The first PBKDF2 block (RFC 8018), which is the whole 256 bit output,
+     * computed in place in the thread's buffers. Matches what the JDK's
+     * PBKDF2WithHmacSHA256 derives for the same UTF-8 password bytes.
+     */
+    private static void deriveBlock(Scratch scratch, byte[] salt, int iterations) throws ShortBufferException {
+        Mac mac = scratch.mac;
+        byte[] u = scratch.u;
+        byte[] block = scratch.block;
+
+        mac.update(salt);
+        // INT(1), big endian block index
+        mac.update((byte) 0);
+        mac.update((byte) 0);
+        mac.update((byte) 0);
+        mac.update((byte) 1);
+        mac.doFinal(u, 0);
+        System.arraycopy(u, 0, block, 0, HASH_BYTES);
+
+        for (int i = 1; i < iterations; i++) {
+            mac.update(u);
+            mac.doFinal(u, 0);
+            for (int j = 0; j < HASH_BYTES; j++) {
+                block[j] ^= u[j];
+            }
+        }
+    }
+
+    @Override
+    public boolean isWeaker(StoredHash stored) {
+        return parseIterations(stored.getParameters()) < iterations;
+    }
+
+    @Override
+    public void calibrate(long targetMillis) {
+        byte[] salt = new byte[16];
+        int sample = MIN_ITERATIONS * 2;
+        // First run warms up the JIT
+        derive("calibration", salt, sample);
+        long start = System.nanoTime();
+        derive("calibration", salt, sample);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        long scaled = sample * (targetMillis * 1_000_000L) / elapsed;
+        // To the nearest power of two, so restarts and other instances timing a little differently agree
+        long rounded = Long.highestOneBit(Math.max(1, scaled));
+        if (scaled - rounded >= rounded / 2) {
+            rounded <<= 1;
+        }
+        iterations = (int) Math.max(MIN_ITERATIONS, Math.min(1 << 30, rounded));
+        LOGGER.info("PBKDF2 calibrated to {} iterations for {} ms", iterations, targetMillis);
+    }
+
+    /**
+     * Parse "i=&lt;iterations&gt;" without substring or boxing
+     */
+    private static int parseIterations(String parameters) {
+        int length = parameters.length();
+        if (length < 3 || length > 12 || parameters.charAt(0) != 'i' || parameters.charAt(1) != '=') {
+            throw new IllegalArgumentException("Bad PBKDF2 parameters: " + parameters);
+        }
+        long iterations = 0;
+        for (int i = 2; i < length; i++) {
+            int digit = parameters.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Bad PBKDF2 parameters: " + parameters);
+            }
+            iterations = iterations * 10 + digit;
+        }
+        if (iterations < 1 || iterations > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad PBKDF2 iteration count: " + parameters);
+        }
+        return (int) iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        return derive(password, salt, iterations, HASH_BYTES * 8);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Per thread HMAC and block buffers, so a verification allocates nothing
+     * beyond the key spec
+     */
+    private static final class Scratch {
+        final Mac mac;
+        final byte[] u = new byte[HASH_BYTES];
+        final byte[] block = new byte[HASH_BYTES];
+
+        Scratch() {
+            try {
+                mac = Mac.getInstance("HmacSHA256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        }
+    }
+}
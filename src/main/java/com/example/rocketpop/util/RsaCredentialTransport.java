@@ -0,0 +1,57 @@
+package com.example.rocketpop.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The original transport: RSA PKCS#1 v1.5 under public.key, sent as plain
+ * base64. Decrypting costs a 2048 bit private key operation per login.
+ */
+@Component
+public class RsaCredentialTransport implements CredentialTransport {
+
+    public static final String SCHEME = "RSA";
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Value("${public.key}")
+    private String publicKeyString;
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    /**
+     * Anything without another scheme's prefix is taken as RSA, which is
+     * what clients sent before there was more than one scheme
+     */
+    @Override
+    public boolean accepts(String ciphertext) {
+        return ciphertext.indexOf('.') < 0;
+    }
+
+    @Override
+    public String decrypt(String ciphertext) {
+        return passwordHasher.rsaDecrypt(ciphertext);
+    }
+
+    @Override
+    public String encrypt(String plaintext) {
+        return passwordHasher.rsaEncrypt(plaintext);
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("scheme", SCHEME);
+        description.put("publicKey", publicKeyString);
+        description.put("format", "base64(RSA/ECB/PKCS1Padding(password)) with the X.509 public key");
+        return description;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.rocketpop.util;
+
+import java.util.Base64;
+
+/**
+ * A stored password hash decoded once into bytes, so checking a password
+ * against it needs no base64 decoding, splitting or String compares.
+ * PasswordHasher keeps these in a small cache keyed by the stored string.
+ */
+public final class StoredHash {
+
+    private final String id;
+    private final String parameters;
+    private final String saltColumn;
+    final byte[] salt;
+    final byte[] hash;
+
+    private StoredHash(String id, String parameters, String saltColumn, byte[] salt, byte[] hash) {
+        this.id = id;
+        this.parameters = parameters;
+        this.saltColumn = saltColumn;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /**
+     * Decode a PHC string, see PasswordHashAlgorithm
+     * @throws IllegalArgumentException if it is not in PHC string format
+     */
+    public static StoredHash parse(String encoded) {
+        String[] parts = PasswordHashAlgorithm.split(encoded);
+        Base64.Decoder decoder = Base64.getDecoder();
+        return new StoredHash(parts[0], parts[1], null, decoder.decode(parts[2]), decoder.decode(parts[3]));
+    }
+
+    /**
+     * Decode a legacy PasswordHasher.hashPassword digest and the salt column it was made with
+     */
+    public static StoredHash legacy(String digest, String saltColumn) {
+        Base64.Decoder decoder = Base64.getDecoder();
+        return new StoredHash(null, null, saltColumn, decoder.decode(saltColumn), decoder.decode(digest));
+    }
+
+    /**
+     * Algorithm id, or null for a legacy digest
+     */
+    public String getId() {
+        return id;
+    }
+
+    public boolean isLegacy() {
+        return id == null;
+    }
+
+    /**
+     * Parameters as written in the PHC string, or null for a legacy digest
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Check this is still the right decoding for a legacy digest stored with
+     * the given salt column. Salts are compared by content, without copying.
+     */
+    boolean isFor(String saltColumn) {
+        return id != null || this.saltColumn.equals(saltColumn);
+    }
+}
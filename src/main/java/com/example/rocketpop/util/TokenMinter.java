@@ -0,0 +1,390 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import com.example.rocketpop.model.User;
+
+/**
+ * Mints HMAC signed user and admin tokens without going through the jjwt
+ * builder. Claims are written as JSON straight into a per-thread byte buffer,
+ * the header segment is encoded once per key, and each thread keeps its own
+ * initialised Mac per key. The only allocation per token is the result string.
+ *
+ * Tokens are byte for byte valid JWS compact strings with the same claims
+ * JWTUtil has always issued, plus a random jti so a single token can be
+ * revoked. Any JWT library can parse them.
+ */
+public class TokenMinter {
+
+    private static final byte[] ISSUER = "Auth Service".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // jti values must not be guessable, or a revocation could be aimed at someone else's token
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Encoded header segment and Mac algorithm per signing key
+    private final Map<Key, KeySpec> specs = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * New random token id for the jti claim, 128 bits as base64url
+     */
+    public static String newTokenId() {
+        ByteSink out = new ByteSink();
+        out.base64Url(randomId(new byte[16]), 0, 16);
+        return new String(out.bytes, 0, out.length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] randomId(byte[] id) {
+        RANDOM.nextBytes(id);
+        return id;
+    }
+
+    /**
+     * Mint a user token (claims id, first_name, last_name, location, department, title)
+     */
+    public String mintUserToken(User user, String kid, SecretKey key, long nowMillis, long expirationMillis) {
+        Buffers buf = buffers.get();
+        JsonWriter json = buf.json.reset();
+        json.begin();
+        json.field("iss", ISSUER);
+        json.key("jti");
+        json.quote();
+        json.base64Url(randomId(buf.jti), 0, buf.jti.length);
+        json.quote();
+        json.field("id", user.getId());
+        json.field("first_name", user.getFirstName());
+        json.field("last_name", user.getLastName());
+        json.fieldAsString("location", user.getLocation());
+        json.fieldAsString("department", user.getDepartment());
+        json.field("title", user.getTitle());
+        writeStandardClaims(json, user, nowMillis, expirationMillis);
+        return sign(buf, kid, key);
+    }
+
+    /**
+     * Mint an admin token (claims id, firstName, lastName, location, department, title)
+     */
+    public String mintAdminToken(User user, String kid, SecretKey key, long nowMillis, long expirationMillis) {
+        Buffers buf = buffers.get();
+        JsonWriter json = buf.json.reset();
+        json.begin();
+        json.field("iss", ISSUER);
+        json.key("jti");
+        json.quote();
+        json.base64Url(randomId(buf.jti), 0, buf.jti.length);
+        json.quote();
+        json.field("id", user.getId());
+        json.field("firstName", user.getFirstName());
+        json.field("lastName", user.getLastName());
+        json.field("location", user.getLocation());
+        json.field("department", user.getDepartment());
+        json.field("title", user.getTitle());
+        writeStandardClaims(json, user, nowMillis, expirationMillis);
+        return sign(buf, kid, key);
+    }
+
+    private static void writeStandardClaims(JsonWriter json, User user, long nowMillis, long expirationMillis) {
+        // Subject has always been the plain concatenation, nulls included
+        json.key("sub");
+        json.quote();
+        json.chars(String.valueOf(user.getFirstName()));
+        json.raw((byte) ' ');
+        json.chars(String.valueOf(user.getLastName()));
+        json.quote();
+        json.field("iat", nowMillis / 1000);
+        json.field("exp", expirationMillis / 1000);
+        json.end();
+    }
+
+    private String sign(Buffers buf, String kid, SecretKey key) {
+        KeySpec spec = specs.computeIfAbsent(key, k -> new KeySpec(kid, (SecretKey) k));
+        if (!spec.kid.equals(kid)) {
+            spec = new KeySpec(kid, key);
+            specs.put(key, spec);
+        }
+        Mac mac = buf.mac(spec, key);
+
+        JsonWriter json = buf.json;
+        ByteSink out = buf.out.reset();
+        out.append(spec.encodedHeader);
+        out.append((byte) '.');
+        out.base64Url(json.bytes, 0, json.length);
+        // The signature covers "header.payload" exactly as written
+        mac.update(out.bytes, 0, out.length);
+        byte[] signature = buf.signature(mac.getMacLength());
+        try {
+            mac.doFinal(signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign token", e);
+        }
+        out.append((byte) '.');
+        out.base64Url(signature, 0, signature.length);
+        return new String(out.bytes, 0, out.length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Per key constants: the jjwt compatible HS algorithm and the encoded header
+     */
+    private static final class KeySpec {
+        private final String kid;
+        private final String macAlgorithm;
+        private final byte[] encodedHeader;
+
+        KeySpec(String kid, SecretKey key) {
+            // Same choice jjwt makes for signWith(SecretKey): the strongest the key allows
+            int bits = key.getEncoded().length * 8;
+            String alg = bits >= 512 ? "HS512" : bits >= 384 ? "HS384" : "HS256";
+            this.kid = kid;
+            this.macAlgorithm = "HmacSHA" + alg.substring(2);
+            JsonWriter header = new JsonWriter();
+            header.begin();
+            header.field("kid", kid);
+            header.field("alg", alg);
+            header.end();
+            this.encodedHeader = Base64.getUrlEncoder().withoutPadding()
+                    .encode(Arrays.copyOf(header.bytes, header.length));
+        }
+    }
+
+    /**
+     * Everything one thread reuses between tokens
+     */
+    private static final class Buffers {
+        private final JsonWriter json = new JsonWriter();
+        private final ByteSink out = new ByteSink();
+        private final Map<KeySpec, Mac> macs = new IdentityHashMap<>();
+        private final byte[] jti = new byte[16];
+        private byte[] signature = new byte[64];
+
+        Mac mac(KeySpec spec, SecretKey key) {
+            Mac mac = macs.get(spec);
+            if (mac == null) {
+                if (macs.size() > 8) {
+                    // Rotated keys, drop the stale ones
+                    macs.clear();
+                }
+                try {
+                    mac = Mac.getInstance(spec.macAlgorithm);
+                    mac.init(key);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Could not initialise " + spec.macAlgorithm, e);
+                }
+                macs.put(spec, mac);
+            }
+            return mac;
+        }
+
+        byte[] signature(int length) {
+            if (signature.length != length) {
+                signature = new byte[length];
+            }
+            return signature;
+        }
+    }
+
+    /**
+     * Growable byte buffer with a base64url (no padding) encoder
+     */
+    static class ByteSink {
+        byte[] bytes = new byte[512];
+        int length;
+
+        ByteSink reset() {
+            length = 0;
+            return this;
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void append(byte b) {
+            ensure(1);
+            bytes[length++] = b;
+        }
+
+        void append(byte[] src) {
+            ensure(src.length);
+            System.arraycopy(src, 0, bytes, length, src.length);
+            length += src.length;
+        }
+
+        void base64Url(byte[] src, int offset, int count) {
+            ensure((count + 2) / 3 * 4);
+            int end = offset + count;
+            int i = offset;
+            while (i + 3 <= end) {
+                int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+                bytes[length++] = BASE64URL[bits >>> 18];
+                bytes[length++] = BASE64URL[(bits >>> 12) & 0x3f];
+                bytes[length++] = BASE64URL[(bits >>> 6) & 0x3f];
+                bytes[length++] = BASE64URL[bits & 0x3f];
+                i += 3;
+            }
+            int remaining = end - i;
+            if (remaining == 1) {
+                int bits = (src[i] & 0xff) << 16;
+                bytes[length++] = BASE64URL[bits >>> 18];
+                bytes[length++] = BASE64URL[(bits >>> 12) & 0x3f];
+            } else if (remaining == 2) {
+                int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8;
+                bytes[length++] = BASE64URL[bits >>> 18];
+                bytes[length++] = BASE64URL[(bits >>> 12) & 0x3f];
+                bytes[length++] = BASE64URL[(bits >>> 6) & 0x3f];
+            }
+        }
+    }
+
+    /**
+     * Minimal JSON object writer producing UTF-8. Null string values are
+     * skipped, the same as jjwt does for null claims.
+     */
+    static final class JsonWriter extends ByteSink {
+        private boolean first;
+
+        @Override
+        JsonWriter reset() {
+            super.reset();
+            return this;
+        }
+
+        void begin() {
+            append((byte) '{');
+            first = true;
+        }
+
+        void end() {
+            append((byte) '}');
+        }
+
+        void key(String name) {
+            if (!first) {
+                append((byte) ',');
+            }
+            first = false;
+            quote();
+            chars(name);
+            quote();
+            append((byte) ':');
+        }
+
+        void field(String name, String value) {
+            if (value == null) {
+                return;
+            }
+            key(name);
+            quote();
+            chars(value);
+            quote();
+        }
+
+        void field(String name, byte[] utf8Value) {
+            key(name);
+            quote();
+            append(utf8Value);
+            quote();
+        }
+
+        void field(String name, long value) {
+            key(name);
+            number(value);
+        }
+
+        void fieldAsString(String name, long value) {
+            key(name);
+            quote();
+            number(value);
+            quote();
+        }
+
+        void quote() {
+            append((byte) '"');
+        }
+
+        void raw(byte b) {
+            append(b);
+        }
+
+        void number(long value) {
+            if (value == Long.MIN_VALUE) {
+                chars(Long.toString(value));
+                return;
+            }
+            if (value < 0) {
+                append((byte) '-');
+                value = -value;
+            }
+            ensure(20);
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+            // Digits were written least significant first
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte tmp = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = tmp;
+            }
+        }
+
+        /** Escaped UTF-8 string content, without quotes */
+        void chars(String s) {
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    append((byte) '\\');
+                    append((byte) c);
+                } else if (c < 0x20) {
+                    ensure(6);
+                    bytes[length++] = '\\';
+                    bytes[length++] = 'u';
+                    bytes[length++] = '0';
+                    bytes[length++] = '0';
+                    bytes[length++] = HEX[c >> 4];
+                    bytes[length++] = HEX[c & 0xf];
+                } else if (c < 0x80) {
+                    append((byte) c);
+                } else if (c < 0x800) {
+                    ensure(2);
+                    bytes[length++] = (byte) (0xc0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    ensure(4);
+                    bytes[length++] = (byte) (0xf0 | (cp >> 18));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate, same replacement String.getBytes would use
+                    append((byte) '?');
+                } else {
+                    ensure(3);
+                    bytes[length++] = (byte) (0xe0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.rocketpop.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.example.rocketpop.model.User;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.json.JsonFactory;
+
+/**
+ * Writes user listings to a stream a user at a time, so an export of any
+ * size holds one row in memory. JSON is an array of objects with the same
+ * fields as /admin/user/getall, NDJSON one such object per line, and CSV a
+ * header line then one line per user. Password and salt are never written.
+ *
+ * close finishes the document and flushes it, but leaves the stream open.
+ */
+public abstract class UserExportWriter implements Closeable {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final JsonFactory NDJSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .rootValueSeparator("\n")
+            .build();
+
+    public enum Format {
+        JSON("application/json", "json"),
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        /**
+         * @throws IllegalArgumentException if the name is not json, ndjson or csv
+         */
+        public static Format parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format must be json, ndjson or csv");
+            }
+        }
+    }
+
+    public static UserExportWriter open(Format format, OutputStream out) throws IOException {
+        return switch (format) {
+            case JSON -> new JsonWriter(JSON.createGenerator(out), true);
+            case NDJSON -> new JsonWriter(NDJSON.createGenerator(out), false);
+            case CSV -> new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        };
+    }
+
+    public abstract void write(User user) throws IOException;
+
+    private static final class JsonWriter extends UserExportWriter {
+        private final JsonGenerator generator;
+        private final boolean array;
+        private boolean written;
+
+        JsonWriter(JsonGenerator generator, boolean array) {
+            this.generator = generator;
+            this.array = array;
+            if (array) {
+                generator.writeStartArray();
+            }
+        }
+
+        @Override
+        public void write(User user) {
+            generator.writeStartObject();
+            generator.writeNumberProperty("id", user.getId());
+            generator.writeStringProperty("username", user.getUsername());
+            generator.writeStringProperty("firstName", user.getFirstName());
+            generator.writeStringProperty("lastName", user.getLastName());
+            generator.writeStringProperty("title", user.getTitle());
+            generator.writeNumberProperty("department", user.getDepartment());
+            generator.writeStringProperty("email", user.getEmail());
+            generator.writeStringProperty("country", user.getCountry());
+            generator.writeStringProperty("city", user.getCity());
+            generator.writeNumberProperty("location", user.getLocation());
+            generator.writeEndObject();
+            written = true;
+        }
+
+        @Override
+        public void close() {
+            if (array) {
+                generator.writeEndArray();
+            } else if (written) {
+                // The separator only goes between lines, so end the last one
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+
+    private static final class CsvWriter extends UserExportWriter {
+        private final Writer writer;
+
+        CsvWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("id,username,firstName,lastName,title,department,email,country,city,location\r\n");
+        }
+
+        @Override
+        public void write(User user) throws IOException {
+            writer.write(Integer.toString(user.getId()));
+            writer.write(',');
+            field(user.getUsername());
+            writer.write(',');
+            field(user.getFirstName());
+            writer.write(',');
+            field(user.getLastName());
+            writer.write(',');
+            field(user.getTitle());
+            writer.write(',');
+            writer.write(Integer.toString(user.getDepartment()));
+            writer.write(',');
+            field(user.getEmail());
+            writer.write(',');
+            field(user.getCountry());
+            writer.write(',');
+            field(user.getCity());
+            writer.write(',');
+            writer.write(Integer.toString(user.getLocation()));
+            writer.write("\r\n");
+        }
+
+        /**
+         * Quoted as RFC 4180 asks when needed. A leading =, +, - or @ gets a
+         * quote mark in front, so a spreadsheet opening the file does not run
+         * a user supplied value as a formula.
+         */
+        private void field(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@') {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
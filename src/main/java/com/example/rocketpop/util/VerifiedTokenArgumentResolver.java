@@ -0,0 +1,42 @@
+package com.example.rocketpop.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.example.rocketpop.model.VerifiedToken;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Supplies controller methods with the request's VerifiedToken. The value is
+ * null when the token is invalid or expired. A missing Authorization header
+ * is a 400, like a required @RequestHeader, unless the parameter is @Nullable.
+ */
+@Component
+public class VerifiedTokenArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Autowired
+    private VerifiedTokenFilter verifiedTokenFilter;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return VerifiedToken.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) == null && !parameter.isOptional()) {
+            throw new MissingRequestHeaderException(HttpHeaders.AUTHORIZATION, parameter);
+        }
+        return verifiedTokenFilter.resolve(request);
+    }
+}
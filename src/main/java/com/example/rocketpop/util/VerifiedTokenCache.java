@@ -0,0 +1,214 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.rocketpop.model.VerifiedToken;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Bounded cache of already verified tokens, keyed by the SHA-256 digest of
+ * the token so raw tokens are never held in memory. Entries are evicted
+ * least recently used first and never outlive the token's exp claim.
+ *
+ * The cache is split into segments, each an access ordered LinkedHashMap
+ * behind its own lock, so concurrent requests rarely wait on each other.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private static final int SEGMENTS = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:100000}") int maxSize) {
+        int perSegment = Math.max(1, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Get the cached verified token, or null if it is not cached or has expired
+     */
+    public VerifiedToken get(String token) {
+        Digest digest = digest(token);
+        Entry entry = segmentFor(digest).get(digest);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            segmentFor(digest).remove(digest);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.token;
+    }
+
+    /**
+     * Cache a verified token until its exp claim
+     */
+    public void put(String token, VerifiedToken verified) {
+        if (verified.getExpiration() == null) {
+            return;
+        }
+        Digest digest = digest(token);
+        segmentFor(digest).put(digest, new Entry(verified, verified.getExpiration().getTime()));
+    }
+
+    /**
+     * Drop a single token, e.g. when it is revoked
+     */
+    public void invalidate(String token) {
+        Digest digest = digest(token);
+        segmentFor(digest).remove(digest);
+    }
+
+    /**
+     * Drop every cached token matching the predicate, e.g. all tokens for a user
+     */
+    public void invalidateIf(Predicate<VerifiedToken> predicate) {
+        for (Segment segment : segments) {
+            segment.removeIf(predicate);
+        }
+    }
+
+    /**
+     * Drop every cached token
+     */
+    public void invalidateAll() {
+        invalidateIf(token -> true);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.cache.hits", this, VerifiedTokenCache::getHits).register(registry);
+        FunctionCounter.builder("jwt.cache.misses", this, VerifiedTokenCache::getMisses).register(registry);
+        FunctionCounter.builder("jwt.cache.evictions", this, VerifiedTokenCache::getEvictions).register(registry);
+        Gauge.builder("jwt.cache.size", this, VerifiedTokenCache::size).register(registry);
+    }
+
+    private Segment segmentFor(Digest digest) {
+        return segments[(digest.hash & 0x7fffffff) % SEGMENTS];
+    }
+
+    private static Digest digest(String token) {
+        return new Digest(SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class Digest {
+        private final byte[] bytes;
+        private final int hash;
+
+        Digest(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Digest && Arrays.equals(bytes, ((Digest) o).bytes);
+        }
+    }
+
+    private static final class Entry {
+        private final VerifiedToken token;
+        private final long expiresAt;
+
+        Entry(VerifiedToken token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Digest, Entry> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized Entry get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized Entry put(Digest key, Entry value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized Entry remove(Object key) {
+            return super.remove(key);
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+
+        synchronized void removeIf(Predicate<VerifiedToken> predicate) {
+            Iterator<Entry> it = values().iterator();
+            while (it.hasNext()) {
+                if (predicate.test(it.next().token)) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Digest, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
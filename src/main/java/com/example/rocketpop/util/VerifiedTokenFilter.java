@@ -0,0 +1,49 @@
+package com.example.rocketpop.util;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.rocketpop.model.VerifiedToken;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Verifies the Authorization header once per request and stores the result
+ * as a request attribute. Requests are never rejected here, controllers
+ * decide what an absent or invalid token means for them.
+ */
+@Component
+public class VerifiedTokenFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        resolve(request);
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Get the verified token for a request, verifying it on first use.
+     * Returns null if there is no valid token.
+     */
+    public VerifiedToken resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(VerifiedToken.ATTRIBUTE);
+        if (cached instanceof Optional<?> verified) {
+            return (VerifiedToken) verified.orElse(null);
+        }
+        VerifiedToken token = jwtUtil.verify(request.getHeader(HttpHeaders.AUTHORIZATION));
+        request.setAttribute(VerifiedToken.ATTRIBUTE, Optional.ofNullable(token));
+        return token;
+    }
+}
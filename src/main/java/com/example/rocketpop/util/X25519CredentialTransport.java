@@ -0,0 +1,219 @@
+package com.example.rocketpop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * ECIES style transport: the client makes an ephemeral X25519 key pair,
+ * agrees a secret with the server key, derives an AES-256 key with
+ * HKDF-SHA256 and seals the password with AES-GCM. The server side is one
+ * X25519 agreement and a few symmetric operations, roughly an order of
+ * magnitude cheaper than an RSA 2048 private key decrypt.
+ *
+ * Wire format, every part base64url without padding:
+ * <pre>
+ * x25519.&lt;ephemeral public key, 32 bytes&gt;.&lt;nonce, 12 bytes&gt;.&lt;AES-GCM ciphertext and tag&gt;
+ * </pre>
+ * The HKDF salt is the ephemeral key followed by the server key, the info is
+ * "rocketpop credential v1", and the ephemeral key is the GCM associated data.
+ */
+@Component
+public class X25519CredentialTransport implements CredentialTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(X25519CredentialTransport.class);
+
+    public static final String SCHEME = "X25519";
+
+    static final String PREFIX = "x25519.";
+    private static final byte[] INFO = "rocketpop credential v1".getBytes(StandardCharsets.US_ASCII);
+    private static final int KEY_LENGTH = 32;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    // X.509 SubjectPublicKeyInfo header in front of a raw X25519 key
+    private static final byte[] X509_PREFIX = {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x6e, 0x03, 0x21, 0x00};
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final PrivateKey privateKey;
+    private final byte[] rawPublicKey;
+
+    /**
+     * Keys for tests and benchmarks, a throwaway pair when both are empty
+     */
+    public X25519CredentialTransport(String privateKeyString, String publicKeyString) {
+        this(SCHEME, privateKeyString, publicKeyString, true);
+    }
+
+    /**
+     * @param scheme credential.transport.scheme, the scheme advertised to clients
+     * @param privateKeyString base64 PKCS#8 X25519 private key
+     * @param publicKeyString base64 X.509 X25519 public key
+     * @param generate Make a throwaway pair when the keys are unset and X25519
+     *     is advertised, for dev and tests only. Otherwise startup fails, as
+     *     clients would be handed a key that changes on every restart and
+     *     differs between instances.
+     */
+    @Autowired
+    public X25519CredentialTransport(@Value("${credential.transport.scheme:RSA}") String scheme,
+                                     @Value("${credential.x25519.private-key:}") String privateKeyString,
+                                     @Value("${credential.x25519.public-key:}") String publicKeyString,
+                                     @Value("${credential.x25519.generate:false}") boolean generate) {
+        try {
+            KeyPair keyPair;
+            if (privateKeyString.isEmpty() || publicKeyString.isEmpty()) {
+                boolean advertised = SCHEME.equalsIgnoreCase(scheme);
+                if (advertised && !generate) {
+                    throw new IllegalStateException(
+                            "credential.transport.scheme=X25519 needs credential.x25519.private-key and credential.x25519.public-key");
+                }
+                // Not advertised, so no client is ever given the throwaway public key
+                if (advertised) {
+                    LOGGER.warn("credential.x25519 keys not set, generating a throwaway X25519 key pair (credential.x25519.generate=true)");
+                } else {
+                    LOGGER.info("credential.x25519 keys not set, X25519 is not advertised");
+                }
+                keyPair = KeyPairGenerator.getInstance("X25519").generateKeyPair();
+            } else {
+                KeyFactory factory = KeyFactory.getInstance("X25519");
+                Base64.Decoder decoder = Base64.getDecoder();
+                keyPair = new KeyPair(
+                        factory.generatePublic(new X509EncodedKeySpec(decoder.decode(publicKeyString))),
+                        factory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(privateKeyString))));
+            }
+            this.privateKey = keyPair.getPrivate();
+            this.rawPublicKey = rawKey(keyPair.getPublic());
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid credential.x25519 keys", e);
+        }
+    }
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public boolean accepts(String ciphertext) {
+        return ciphertext.startsWith(PREFIX);
+    }
+
+    @Override
+    public String decrypt(String ciphertext) {
+        try {
+            String[] parts = ciphertext.substring(PREFIX.length()).split("\\.", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected ephemeral key, nonce and ciphertext");
+            }
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] ephemeralKey = decoder.decode(parts[0]);
+            byte[] nonce = decoder.decode(parts[1]);
+            if (ephemeralKey.length != KEY_LENGTH || nonce.length != NONCE_LENGTH) {
+                throw new IllegalArgumentException("Bad ephemeral key or nonce length");
+            }
+
+            byte[] shared = agree(privateKey, publicKey(ephemeralKey));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, deriveKey(shared, ephemeralKey, rawPublicKey), new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(ephemeralKey);
+            return new String(cipher.doFinal(decoder.decode(parts[2])), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            LOGGER.error("Error decrypting password: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String encrypt(String plaintext) {
+        try {
+            KeyPair ephemeral = KeyPairGenerator.getInstance("X25519").generateKeyPair();
+            byte[] ephemeralKey = rawKey(ephemeral.getPublic());
+            byte[] nonce = new byte[NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+
+            byte[] shared = agree(ephemeral.getPrivate(), publicKey(rawPublicKey));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, deriveKey(shared, ephemeralKey, rawPublicKey), new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(ephemeralKey);
+            byte[] sealed = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            return PREFIX + encoder.encodeToString(ephemeralKey)
+                    + "." + encoder.encodeToString(nonce)
+                    + "." + encoder.encodeToString(sealed);
+        } catch (Exception e) {
+            LOGGER.error("Error encrypting password: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("scheme", SCHEME);
+        description.put("publicKey", Base64.getUrlEncoder().withoutPadding().encodeToString(rawPublicKey));
+        description.put("format", "x25519.<ephemeral key>.<nonce>.<AES-256-GCM ciphertext>, "
+                + "key = HKDF-SHA256(salt = ephemeral key || public key, info = \"rocketpop credential v1\"), "
+                + "aad = ephemeral key, all base64url");
+        return description;
+    }
+
+    private static byte[] agree(PrivateKey ours, PublicKey theirs) throws GeneralSecurityException {
+        KeyAgreement agreement = KeyAgreement.getInstance("X25519");
+        agreement.init(ours);
+        agreement.doPhase(theirs, true);
+        return agreement.generateSecret();
+    }
+
+    /**
+     * HKDF-SHA256 (RFC 5869) for a single 32 byte output block
+     */
+    private static SecretKeySpec deriveKey(byte[] shared, byte[] ephemeralKey, byte[] serverKey) throws GeneralSecurityException {
+        byte[] salt = Arrays.copyOf(ephemeralKey, ephemeralKey.length + serverKey.length);
+        System.arraycopy(serverKey, 0, salt, ephemeralKey.length, serverKey.length);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(shared);
+
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        mac.update(INFO);
+        mac.update((byte) 1);
+        return new SecretKeySpec(mac.doFinal(), 0, KEY_LENGTH, "AES");
+    }
+
+    private static PublicKey publicKey(byte[] raw) throws GeneralSecurityException {
+        byte[] encoded = Arrays.copyOf(X509_PREFIX, X509_PREFIX.length + raw.length);
+        System.arraycopy(raw, 0, encoded, X509_PREFIX.length, raw.length);
+        return KeyFactory.getInstance("X25519").generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    private static byte[] rawKey(PublicKey key) {
+        byte[] encoded = key.getEncoded();
+        return Arrays.copyOfRange(encoded, encoded.length - KEY_LENGTH, encoded.length);
+    }
+}
@@ -14,3 +14,10 @@ CREATE TABLE IF NOT EXISTS users (
     salt VARCHAR(128) NOT NULL
 );
 
+
+-- Revoked tokens, keyed by "jti:<jti>" or "user:<id>". Rows are purged once expires_at passes
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_key VARCHAR(100) NOT NULL Primary Key,
+    revoked_at BIGINT NOT NULL,
+    expires_at BIGINT NOT NULL
+);
@@ -0,0 +1,7 @@
+-- username drives every login and by-name lookup, and no two users may share one.
+-- With MySQL's default collation this also rejects names differing only in case
+CREATE UNIQUE INDEX ux_users_username ON users (username);
+
+CREATE INDEX ix_users_email ON users (email);
+CREATE INDEX ix_users_department ON users (department);
+CREATE INDEX ix_users_location ON users (location);
@@ -0,0 +1,74 @@
+package com.example.rocketpop.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.util.PasswordHasher;
+import com.example.rocketpop.util.X25519CredentialTransport;
+
+/**
+ * Server side cost of unwrapping one login password with each credential
+ * transport scheme: RSA 2048 PKCS#1 against X25519 + HKDF + AES-GCM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialTransportBenchmark {
+
+    private PasswordHasher passwordHasher;
+    private X25519CredentialTransport x25519;
+    private String rsaCiphertext;
+    private String x25519Ciphertext;
+
+    @Setup
+    public void setUp() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = CredentialTransportBenchmark.class.getResourceAsStream("/application.properties")) {
+            properties.load(in);
+        }
+        passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "privateKeyString", properties.getProperty("private.key"));
+        ReflectionTestUtils.setField(passwordHasher, "publicKeyString", properties.getProperty("public.key"));
+        passwordHasher.loadKeys();
+        x25519 = new X25519CredentialTransport("", "");
+
+        rsaCiphertext = passwordHasher.rsaEncrypt("benchmarkPassword123");
+        x25519Ciphertext = x25519.encrypt("benchmarkPassword123");
+    }
+
+    @Benchmark
+    public String rsaDecrypt() {
+        return passwordHasher.rsaDecrypt(rsaCiphertext);
+    }
+
+    @Benchmark
+    public String x25519Decrypt() {
+        return x25519.decrypt(x25519Ciphertext);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(CredentialTransportBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.model.AuthResult;
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.service.UserService;
+import com.example.rocketpop.util.PasswordHasher;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Failed login throughput through UserService with an in-memory user table:
+ * the lookup and compare the removed authenticateUser did, throwing a
+ * RuntimeException per failure, against authenticateWithPassword returning
+ * an AuthResult. The bad password case
+ * uses a cheap legacy SHA-512 hash; the result path computes that digest,
+ * while the throwing path is handed it precomputed, so that case
+ * understates the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class FailedLoginBenchmark {
+
+    private static final String PASSWORD = "benchmarkPassword123";
+
+    private UserDatabase userDatabase;
+    private UserService userService;
+    private String wrongHash;
+
+    @Setup
+    public void setUp() {
+        // As in application.properties, so log lines do not swamp the measurement
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.example.rocketpop")).setLevel(Level.WARN);
+
+        PasswordHasher passwordHasher = new PasswordHasher();
+        String salt = passwordHasher.getRandomSalt();
+        User user = new User("benchuser", passwordHasher.hashPassword(PASSWORD, salt), salt);
+        user.setId(1);
+        user.setTitle("user");
+        wrongHash = passwordHasher.hashPassword("wrongPassword", salt);
+
+        userDatabase = new UserDatabase() {
+            @Override
+            public User getUser(String username) {
+                return user.getUsername().equals(username) ? user : null;
+            }
+
+            @Override
+            public User getCredentials(String username) {
+                return getUser(username);
+            }
+        };
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userDatabase", userDatabase);
+        ReflectionTestUtils.setField(userService, "passwordHasher", passwordHasher);
+    }
+
+    @Benchmark
+    public Object unknownUserThrowing() {
+        try {
+            return authenticateThrowing("nobody", wrongHash);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public AuthResult unknownUserResult() {
+        return userService.authenticateWithPassword("nobody", "wrongPassword");
+    }
+
+    @Benchmark
+    public Object badPasswordThrowing() {
+        try {
+            return authenticateThrowing("benchuser", wrongHash);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public AuthResult badPasswordResult() {
+        return userService.authenticateWithPassword("benchuser", "wrongPassword");
+    }
+
+    /**
+     * As the old UserService.authenticateUser, less its logging
+     */
+    private User authenticateThrowing(String username, String passwordHash) {
+        User user = userDatabase.getUser(username);
+        if (user == null) {
+            throw new RuntimeException("Invalid username or password");
+        }
+        if (!passwordHash.equals(user.getPassword())) {
+            throw new RuntimeException("Invalid password");
+        }
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(FailedLoginBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.rocketpop.util.JwtKeyring;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Token verify throughput: decoding the secret and building a parser on every
+ * call (the old JWTUtil behaviour) against the pre-built JwtKeyring parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    static final String USER_SECRET = "RockertSoftwareRocks2025ThisIsNotSecureEnough";
+    static final String ADMIN_SECRET = "RocketSSOAdminSecretKey2025InternalUseOnlygibberishasdfasdfasdf";
+
+    private JwtKeyring keyring;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+        token = Jwts.builder()
+            .issuer("Auth Service")
+            .claim("id", 1)
+            .claim("title", "user")
+            .subject("Bench User")
+            .issuedAt(new Date())
+            .expiration(new Date(System.currentTimeMillis() + 86400000))
+            .signWith(keyring.getKey(false))
+            .compact();
+    }
+
+    @Benchmark
+    public Claims perCallKeyAndParser() {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(USER_SECRET));
+        return Jwts.parser()
+            .verifyWith(key)
+            .build()
+            .parseSignedClaims(token)
+            .getPayload();
+    }
+
+    @Benchmark
+    public Claims prebuiltKeyring() {
+        return keyring.getParser(false)
+            .parseSignedClaims(token)
+            .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(JwtVerifyBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
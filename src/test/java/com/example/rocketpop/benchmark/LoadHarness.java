@@ -0,0 +1,423 @@
+package com.example.rocketpop.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.json.JSONObject;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.rocketpop.RocketpopApplication;
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.PasswordHasher;
+
+/**
+ * End to end load test. Starts the application on the h2 or mysql profile
+ * with a random port, seeds synthetic users, then has a number of concurrent
+ * clients (virtual threads on the client side) send a weighted mix of
+ * /login, /user/info, /admin/user/getall and /admin/user/edit back to back
+ * for a fixed time after a warm up. Writes throughput, p50/p99/p999 latency
+ * and status counts per endpoint as JSON, to stdout and to a file, so runs
+ * on different commits can be compared.
+ *
+ * Not a JMH benchmark. Settings are system properties:
+ * <pre>
+ * -Ddb=h2                    database profile, h2 or mysql
+ * -Dusers=10000              synthetic users to seed
+ * -Dseed=batch               batch: JDBC batches of 1000 inserts, createUser: UserDatabase.createUser per user
+ * -Dclients=200              concurrent clients
+ * -Dmix=login:10,info:70,getall:5,edit:15
+ * -Dwarmup=10 -Dduration=30  seconds
+ * -Dprofiles=                extra profiles, e.g. virtual
+ * -Dlabel=                   recorded in the report, e.g. the commit
+ * -Dout=target/load          directory for the report
+ * </pre>
+ * Seeded users all share one password hash, so seeding does not spend
+ * minutes hashing; logins still verify it in full. Seeded usernames start
+ * with load, and any such users left by an earlier run are deleted first, so
+ * on mysql point spring.datasource.url at a scratch database.
+ */
+public class LoadHarness {
+
+    static final String PASSWORD = "loadPassword123";
+
+    static final String DB = System.getProperty("db", "h2");
+
+    /**
+     * The endpoints in the mix, with their weight key
+     */
+    enum Endpoint {
+        LOGIN("login", "/login"),
+        INFO("info", "/user/info"),
+        GETALL("getall", "/admin/user/getall"),
+        EDIT("edit", "/admin/user/edit");
+
+        final String key;
+        final String path;
+
+        Endpoint(String key, String path) {
+            this.key = key;
+            this.path = path;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("users", 10000);
+        int clients = Integer.getInteger("clients", 200);
+        int warmupSeconds = Integer.getInteger("warmup", 10);
+        int durationSeconds = Integer.getInteger("duration", 30);
+        String seed = System.getProperty("seed", "batch");
+        String mix = System.getProperty("mix", "login:10,info:70,getall:5,edit:15");
+        String profiles = System.getProperty("profiles", "");
+        int[] weights = parseMix(mix);
+
+        try (ConfigurableApplicationContext context = start(profiles)) {
+            long seedStarted = System.nanoTime();
+            Workload workload = seed(context, users, seed.equals("createUser"));
+            double seedSeconds = (System.nanoTime() - seedStarted) / 1e9;
+
+            Recorder total = drive(workload, clients, weights, warmupSeconds, durationSeconds);
+
+            JSONObject report = new JSONObject();
+            report.put("label", System.getProperty("label", ""));
+            report.put("timestamp", Instant.now().toString());
+            report.put("config", new JSONObject()
+                .put("users", users)
+                .put("seed", seed)
+                .put("seedSeconds", Math.round(seedSeconds * 10) / 10.0)
+                .put("clients", clients)
+                .put("mix", mix)
+                .put("warmupSeconds", warmupSeconds)
+                .put("durationSeconds", durationSeconds)
+                .put("profiles", DB + (profiles.isEmpty() ? "" : "," + profiles))
+                .put("cores", Runtime.getRuntime().availableProcessors())
+                .put("java", System.getProperty("java.version")));
+            JSONObject endpoints = new JSONObject();
+            for (Endpoint endpoint : Endpoint.values()) {
+                if (weights[endpoint.ordinal()] > 0) {
+                    endpoints.put(endpoint.path, total.summary(endpoint, durationSeconds));
+                }
+            }
+            report.put("endpoints", endpoints);
+            write(report);
+        }
+    }
+
+    /**
+     * Start the application on the -Ddb profile, plus any extra profiles, on a
+     * random port with logging down to warnings and the login throttle out of
+     * the way, since every client logs in from 127.0.0.1
+     */
+    static ConfigurableApplicationContext start(String profiles, String... overrides) {
+        List<String> args = new ArrayList<>(List.of(
+            "--spring.profiles.active=" + DB + (profiles.isEmpty() ? "" : "," + profiles),
+            "--server.port=0",
+            "--logging.level.root=WARN",
+            "--logging.level.com.example.rocketpop=WARN",
+            "--logging.file.name=",
+            "--login.throttle.username.burst=100000000",
+            "--login.throttle.username.per-minute=100000000",
+            "--login.throttle.username.lockout-failures=100000000",
+            "--login.throttle.ip.burst=100000000",
+            "--login.throttle.ip.per-minute=100000000",
+            "--login.throttle.ip.lockout-failures=100000000"));
+        args.addAll(List.of(overrides));
+        return new SpringApplicationBuilder(RocketpopApplication.class).run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Latency at a percentile of sorted nanosecond samples, in milliseconds
+     */
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Endpoint.values().length];
+        for (String part : mix.split(",")) {
+            String[] keyWeight = part.trim().split(":");
+            Endpoint endpoint = Arrays.stream(Endpoint.values())
+                .filter(e -> e.key.equals(keyWeight[0]))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint in mix: " + keyWeight[0]));
+            weights[endpoint.ordinal()] = Integer.parseInt(keyWeight[1]);
+        }
+        if (Arrays.stream(weights).sum() <= 0) {
+            throw new IllegalArgumentException("Mix has no weight: " + mix);
+        }
+        return weights;
+    }
+
+    /**
+     * Everything the clients need: seeded users with tokens, an admin token and the server address
+     */
+    private record Workload(String base, List<User> users, List<String> userTokens, String adminToken, String loginPassword) {}
+
+    private static Workload seed(ConfigurableApplicationContext context, int count, boolean viaCreateUser) {
+        PasswordHasher passwordHasher = context.getBean(PasswordHasher.class);
+        UserDatabase userDatabase = context.getBean(UserDatabase.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        JWTUtil jwtUtil = context.getBean(JWTUtil.class);
+        String hash = passwordHasher.encode(PASSWORD);
+
+        // Only a persistent database has anything to clear
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'load%'");
+        if (viaCreateUser) {
+            for (int i = 0; i < count; i++) {
+                userDatabase.createUser(syntheticUser(i, hash));
+            }
+        } else {
+            List<Object[]> rows = new ArrayList<>(1000);
+            for (int i = 0; i < count; i++) {
+                User user = syntheticUser(i, hash);
+                rows.add(new Object[] {user.getFirstName(), user.getLastName(), user.getTitle(), user.getDepartment(),
+                    user.getEmail(), user.getCountry(), user.getCity(), user.getLocation(), user.getUsername(),
+                    user.getPassword(), user.getSalt()});
+                if (rows.size() == 1000 || i == count - 1) {
+                    jdbcTemplate.batchUpdate("INSERT INTO users (first_name, last_name, title, department, email, country, city, location, username, password, salt) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                    rows.clear();
+                }
+            }
+            // Batch inserts bypass createUser, so the username filter has not seen them
+            userDatabase.rebuildUsernameFilter();
+        }
+
+        List<User> users = jdbcTemplate.query(
+            "SELECT id, username, first_name, last_name, title, department, email, country, city, location FROM users WHERE username LIKE 'load%'",
+            (rs, rowNum) -> {
+                User user = new User(rs.getString("username"), null, null);
+                user.setId(rs.getInt("id"));
+                user.setFirstName(rs.getString("first_name"));
+                user.setLastName(rs.getString("last_name"));
+                user.setTitle(rs.getString("title"));
+                user.setDepartment(rs.getInt("department"));
+                user.setEmail(rs.getString("email"));
+                user.setCountry(rs.getString("country"));
+                user.setCity(rs.getString("city"));
+                user.setLocation(rs.getInt("location"));
+                return user;
+            });
+        // Tokens are minted directly, one login per user would hash for minutes
+        List<String> userTokens = new ArrayList<>(users.size());
+        for (User user : users) {
+            userTokens.add(jwtUtil.generateUserToken(user));
+        }
+        User admin = new User("loadadmin", hash, "");
+        admin.setId(0);
+        admin.setTitle("admin");
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        return new Workload(base, users, userTokens, jwtUtil.generateAdminToken(admin), passwordHasher.rsaEncrypt(PASSWORD));
+    }
+
+    private static User syntheticUser(int i, String hash) {
+        User user = new User(String.format("load%07d", i), hash, "");
+        user.setFirstName("First" + i);
+        user.setLastName("Last" + i);
+        user.setTitle("user");
+        user.setDepartment(i % 50);
+        user.setEmail("load" + i + "@example.com");
+        user.setCountry("Country" + i % 20);
+        user.setCity("City" + i % 200);
+        user.setLocation(i % 100);
+        return user;
+    }
+
+    private static Recorder drive(Workload workload, int clients, int[] weights, int warmupSeconds, int durationSeconds) throws Exception {
+        int weightTotal = Arrays.stream(weights).sum();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+            CountDownLatch ready = new CountDownLatch(1);
+            long[] window = new long[2];
+            List<Future<Recorder>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    Recorder recorder = new Recorder();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long now;
+                    while ((now = System.nanoTime()) - window[1] < 0) {
+                        Endpoint endpoint = pick(weights, weightTotal, random.nextInt(weightTotal));
+                        int status = send(client, request(workload, endpoint, random));
+                        long finished = System.nanoTime();
+                        // Only requests sent after the warm up, and answered before the end, count
+                        if (now - window[0] >= 0 && finished - window[1] <= 0) {
+                            recorder.record(endpoint, status, finished - now);
+                        }
+                    }
+                    return recorder;
+                }));
+            }
+
+            long started = System.nanoTime();
+            window[0] = started + warmupSeconds * 1_000_000_000L;
+            window[1] = window[0] + durationSeconds * 1_000_000_000L;
+            ready.countDown();
+
+            Recorder total = new Recorder();
+            for (Future<Recorder> future : futures) {
+                total.add(future.get());
+            }
+            return total;
+        }
+    }
+
+    private static Endpoint pick(int[] weights, int weightTotal, int roll) {
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= weights[endpoint.ordinal()];
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Roll beyond " + weightTotal);
+    }
+
+    private static HttpRequest request(Workload workload, Endpoint endpoint, ThreadLocalRandom random) {
+        int index = random.nextInt(workload.users().size());
+        User user = workload.users().get(index);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(workload.base() + endpoint.path));
+        switch (endpoint) {
+            case LOGIN -> builder
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(new JSONObject()
+                    .put("username", user.getUsername())
+                    .put("password", workload.loginPassword())
+                    .toString()));
+            case INFO -> builder
+                .header("Authorization", "Bearer " + workload.userTokens().get(index))
+                .GET();
+            case GETALL -> builder
+                .header("Authorization", "Bearer " + workload.adminToken())
+                .GET();
+            case EDIT -> builder
+                .header("Authorization", "Bearer " + workload.adminToken())
+                .header("Content-Type", "application/json")
+                // No password, so the stored one is kept
+                .PUT(HttpRequest.BodyPublishers.ofString(new JSONObject()
+                    .put("id", user.getId())
+                    .put("username", user.getUsername())
+                    .put("firstName", "First" + random.nextInt(1000000))
+                    .put("lastName", user.getLastName())
+                    .put("title", user.getTitle())
+                    .put("department", user.getDepartment())
+                    .put("email", user.getEmail())
+                    .put("country", user.getCountry())
+                    .put("city", user.getCity())
+                    .put("location", user.getLocation())
+                    .toString()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the status, or 0 if there was no response
+     */
+    private static int send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void write(JSONObject report) throws IOException {
+        String json = report.toString(2);
+        System.out.println(json);
+        Path directory = Paths.get(System.getProperty("out", "target/load"));
+        Files.createDirectories(directory);
+        String label = System.getProperty("label", "");
+        Path file = directory.resolve("load-" + (label.isEmpty() ? "" : label + "-") + System.currentTimeMillis() + ".json");
+        Files.writeString(file, json);
+        System.out.println("Report written to " + file);
+    }
+
+    /**
+     * Latencies of 2xx answers and counts of every status, per endpoint. One per client, merged at the end.
+     */
+    private static final class Recorder {
+        private final long[][] latencies = new long[Endpoint.values().length][1024];
+        private final int[] latencyCounts = new int[Endpoint.values().length];
+        private final int[][] statuses = new int[Endpoint.values().length][600];
+
+        void record(Endpoint endpoint, int status, long nanos) {
+            int e = endpoint.ordinal();
+            statuses[e][status]++;
+            if (status / 100 != 2) {
+                return;
+            }
+            if (latencyCounts[e] == latencies[e].length) {
+                latencies[e] = Arrays.copyOf(latencies[e], latencies[e].length * 2);
+            }
+            latencies[e][latencyCounts[e]++] = nanos;
+        }
+
+        void add(Recorder other) {
+            for (int e = 0; e < latencies.length; e++) {
+                int count = latencyCounts[e] + other.latencyCounts[e];
+                if (count > latencies[e].length) {
+                    latencies[e] = Arrays.copyOf(latencies[e], count);
+                }
+                System.arraycopy(other.latencies[e], 0, latencies[e], latencyCounts[e], other.latencyCounts[e]);
+                latencyCounts[e] = count;
+                for (int s = 0; s < statuses[e].length; s++) {
+                    statuses[e][s] += other.statuses[e][s];
+                }
+            }
+        }
+
+        JSONObject summary(Endpoint endpoint, int durationSeconds) {
+            int e = endpoint.ordinal();
+            long[] sorted = Arrays.copyOf(latencies[e], latencyCounts[e]);
+            Arrays.sort(sorted);
+            int requests = Arrays.stream(statuses[e]).sum();
+            JSONObject statusCounts = new JSONObject();
+            for (int s = 0; s < statuses[e].length; s++) {
+                if (statuses[e][s] > 0) {
+                    statusCounts.put(String.valueOf(s), statuses[e][s]);
+                }
+            }
+            return new JSONObject()
+                .put("requests", requests)
+                .put("ok", sorted.length)
+                .put("throughput", Math.round(10.0 * sorted.length / durationSeconds) / 10.0)
+                .put("p50Ms", round(percentile(sorted, 0.50)))
+                .put("p99Ms", round(percentile(sorted, 0.99)))
+                .put("p999Ms", round(percentile(sorted, 0.999)))
+                .put("statuses", statusCounts);
+        }
+
+        private static double round(double millis) {
+            return Double.isNaN(millis) ? -1 : Math.round(millis * 1000) / 1000.0;
+        }
+    }
+}
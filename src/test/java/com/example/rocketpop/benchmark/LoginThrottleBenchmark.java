@@ -0,0 +1,76 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.rocketpop.model.AuthResult;
+import com.example.rocketpop.util.LoginThrottle;
+
+/**
+ * Cost LoginThrottle adds to an allowed login: acquire and a successful
+ * record against 10000 known usernames and 1000 addresses, with limits high
+ * enough that nothing is throttled. main() runs it at 1 and 8 threads; the
+ * budget is well under a microsecond per attempt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginThrottleBenchmark {
+
+    private static final AuthResult SUCCESS = new AuthResult.Success(null, "token");
+
+    private LoginThrottle throttle;
+    private String[] usernames;
+    private String[] addresses;
+
+    @Setup
+    public void setUp() {
+        throttle = new LoginThrottle(1_000_000, 1e12, 1_000_000, 1_000_000, 1e12, 1_000_000, 60, 600, 100_000, 0);
+        usernames = new String[10_000];
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = "user" + i;
+            // Usernames are tracked from their first wrong password on
+            throttle.record(usernames[i], "10.255.0.1", AuthResult.BAD_PASSWORD);
+        }
+        addresses = new String[1_000];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public long allowedAttempt() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String username = usernames[random.nextInt(usernames.length)];
+        String address = addresses[random.nextInt(addresses.length)];
+        long wait = throttle.acquire(username, address);
+        throttle.record(username, address, SUCCESS);
+        return wait;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 8}) {
+            new Runner(new OptionsBuilder()
+                .include(LoginThrottleBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
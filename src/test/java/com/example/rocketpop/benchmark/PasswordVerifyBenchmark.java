@@ -0,0 +1,98 @@
+package com.example.rocketpop.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.rocketpop.util.PasswordHasher;
+import com.example.rocketpop.util.Pbkdf2PasswordHash;
+
+/**
+ * Password verification against a stored hash: the old login path
+ * (MessageDigest.getInstance, base64 String, String.equals) against
+ * PasswordHasher.matches on cached decoded bytes, for a legacy digest and a
+ * PBKDF2 hash at the minimum iteration count (JDK SecretKeyFactory against
+ * the in place HMAC loop). Run with the GC profiler so
+ * gc.alloc.rate.norm reports bytes/op next to ns/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordVerifyBenchmark {
+
+    private static final String PASSWORD = "benchmarkPassword123";
+
+    private PasswordHasher passwordHasher;
+    private String salt;
+    private String legacyHash;
+    private String pbkdf2Hash;
+
+    @Setup
+    public void setUp() {
+        passwordHasher = new PasswordHasher();
+        salt = passwordHasher.getRandomSalt();
+        legacyHash = passwordHasher.hashPassword(PASSWORD, salt);
+        pbkdf2Hash = new Pbkdf2PasswordHash(10_000).hash(PASSWORD, new byte[16]);
+    }
+
+    @Benchmark
+    public boolean legacyStringCompare() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-512");
+        md.update(Base64.getDecoder().decode(salt));
+        String hash = Base64.getEncoder().encodeToString(md.digest(PASSWORD.getBytes(StandardCharsets.UTF_8)));
+        return hash.equals(legacyHash);
+    }
+
+    @Benchmark
+    public boolean legacyBytes() {
+        return passwordHasher.matches(PASSWORD, legacyHash, salt);
+    }
+
+    @Benchmark
+    public boolean pbkdf2Jdk() throws GeneralSecurityException {
+        // Split and decode the PHC string, derive with the JDK's SecretKeyFactory
+        String[] parts = pbkdf2Hash.split("\\$");
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[4]);
+        PBEKeySpec spec = new PBEKeySpec(PASSWORD.toCharArray(), decoder.decode(parts[3]),
+                Integer.parseInt(parts[2].substring(2)), 256);
+        byte[] derived = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        return MessageDigest.isEqual(expected, derived);
+    }
+
+    @Benchmark
+    public boolean pbkdf2Bytes() {
+        return passwordHasher.matches(PASSWORD, pbkdf2Hash, "");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PasswordVerifyBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.rocketpop.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.util.PasswordHasher;
+
+/**
+ * Login password decrypt latency: parsing the private key and creating a
+ * Cipher on every call (the old rsaDecrypt) against PasswordHasher's parsed
+ * key and cipher pool. main() runs both at 1, 8 and 64 threads and reports
+ * latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RsaDecryptBenchmark {
+
+    private String privateKeyString;
+    private PasswordHasher passwordHasher;
+    private String ciphertext;
+
+    @Setup
+    public void setUp() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = RsaDecryptBenchmark.class.getResourceAsStream("/application.properties")) {
+            properties.load(in);
+        }
+        privateKeyString = properties.getProperty("private.key");
+
+        passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "privateKeyString", privateKeyString);
+        ReflectionTestUtils.setField(passwordHasher, "publicKeyString", properties.getProperty("public.key"));
+        passwordHasher.loadKeys();
+        ciphertext = passwordHasher.rsaEncrypt("benchmarkPassword123");
+    }
+
+    @Benchmark
+    public String perCallKeyAndCipher() throws Exception {
+        Base64.Decoder decoder = Base64.getDecoder();
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        PrivateKey privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(privateKeyString)));
+        Cipher decryptCipher = Cipher.getInstance("RSA");
+        decryptCipher.init(Cipher.DECRYPT_MODE, privateKey);
+        return new String(decryptCipher.doFinal(decoder.decode(ciphertext)), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String pooledCipher() {
+        return passwordHasher.rsaDecrypt(ciphertext);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 8, 64}) {
+            new Runner(new OptionsBuilder()
+                .include(RsaDecryptBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.util.JwtKeyring;
+import com.example.rocketpop.util.TokenMinter;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * User token minting: the previous generateUserToken body (dead JSONObject,
+ * HashMap claims, jjwt builder) against TokenMinter. Run with the GC profiler
+ * so gc.alloc.rate.norm reports bytes/op next to ns/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenMintBenchmark {
+
+    private static final long EXPIRATION_TIME = 86400000;
+
+    private SecretKey key;
+    private TokenMinter minter;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        key = new JwtKeyring(JwtVerifyBenchmark.USER_SECRET, JwtVerifyBenchmark.ADMIN_SECRET).getKey(false);
+        minter = new TokenMinter();
+        user = new User("benchuser", "hash", "salt");
+        user.setId(12345);
+        user.setFirstName("Bench");
+        user.setLastName("User");
+        user.setTitle("manager");
+        user.setDepartment(4);
+        user.setLocation(2);
+    }
+
+    @Benchmark
+    public String legacyBuilder() {
+        JSONObject userObject = new JSONObject();
+        userObject.put("id", user.getId());
+        userObject.put("first_Name", user.getFirstName());
+        userObject.put("last_Name", user.getLastName());
+        userObject.put("location", user.getLocation());
+        userObject.put("department", user.getDepartment());
+        userObject.put("title", user.getTitle());
+
+        Date now = new Date();
+        Date expiration = new Date(now.getTime() + EXPIRATION_TIME);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("id", user.getId());
+        claims.put("first_name", user.getFirstName());
+        claims.put("last_name", user.getLastName());
+        claims.put("location", Integer.toString(user.getLocation()));
+        claims.put("department", Integer.toString(user.getDepartment()));
+        claims.put("title", user.getTitle());
+
+        return Jwts.builder()
+            .issuer("Auth Service")
+            .claims(claims)
+            .subject(user.getFirstName() + " " + user.getLastName())
+            .issuedAt(now)
+            .expiration(expiration)
+            .signWith(key)
+            .compact();
+    }
+
+    @Benchmark
+    public String minter() {
+        long now = System.currentTimeMillis();
+        return minter.mintUserToken(user, JwtKeyring.USER_KEY_ID, key, now, now + EXPIRATION_TIME);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TokenMintBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.CachingUserDatabase;
+import com.example.rocketpop.repository.SchemaMigrations;
+import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.service.UserService;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * 256 threads looking up a handful of hot accounts through UserService,
+ * with the user cache off so every lookup is a miss, with and without
+ * coalescing. Each query parks for -Dlatency-micros (500 by default) on top
+ * of H2 to stand in for the round trip to MySQL. Queries sent per lookup
+ * are printed at the end of each trial; without coalescing it is 1, with it
+ * roughly the number of hot keys per query time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(256)
+@Fork(1)
+public class UserLookupCoalescingBenchmark {
+
+    private static final long LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("latency-micros", 500));
+
+    @Param({"0", "5000"})
+    public long coalesceTimeoutMillis;
+
+    @Param({"4"})
+    public int hotKeys;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+
+    private UserService userService;
+    private String[] usernames;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        // As in application.properties, so log lines do not swamp the measurement
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.example.rocketpop")).setLevel(Level.WARN);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:coalescebench;DB_CLOSE_DELAY=-1");
+        new SchemaMigrations(dataSource, "classpath:db/migration", true).migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM users");
+
+        UserDatabase userDatabase = new UserDatabase() {
+            @Override
+            public User getUser(String username) {
+                queries.increment();
+                LockSupport.parkNanos(LATENCY_NANOS);
+                return super.getUser(username);
+            }
+
+            @Override
+            public User getUserById(String id) {
+                queries.increment();
+                LockSupport.parkNanos(LATENCY_NANOS);
+                return super.getUserById(id);
+            }
+        };
+        ReflectionTestUtils.setField(userDatabase, "jdbcTemplate", jdbcTemplate);
+
+        usernames = new String[hotKeys];
+        ids = new String[hotKeys];
+        for (int i = 0; i < hotKeys; i++) {
+            User user = new User("hot" + i, "hash", "");
+            user.setTitle("user");
+            userDatabase.createUser(user);
+            usernames[i] = user.getUsername();
+            ids[i] = String.valueOf(userDatabase.getUser(usernames[i]).getId());
+        }
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userDatabase",
+            new CachingUserDatabase(userDatabase, 0, 30, coalesceTimeoutMillis));
+        queries.reset();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%d lookups, %.3f queries per lookup%n", lookups.sum(), (double) queries.sum() / lookups.sum());
+    }
+
+    @Benchmark
+    public User getUserByUsername() {
+        lookups.increment();
+        return userService.getUserByUsername(usernames[ThreadLocalRandom.current().nextInt(hotKeys)]);
+    }
+
+    @Benchmark
+    public User getUserById() {
+        lookups.increment();
+        return userService.getUserById(ids[ThreadLocalRandom.current().nextInt(hotKeys)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UserLookupCoalescingBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
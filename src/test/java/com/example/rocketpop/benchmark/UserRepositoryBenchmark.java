@@ -0,0 +1,193 @@
+package com.example.rocketpop.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.SchemaMigrations;
+import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.util.UserExportWriter;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * UserDatabase reads against a 1M row H2 table: the old queries (SELECT *,
+ * a new mapper per query reading columns by name, userExists mapping whole
+ * rows, and a miss in getUser listing every user) against the current
+ * projections, shared index based mappers and EXISTS check. The username
+ * filter is left off so every lookup reaches the table. The schema comes
+ * from SchemaMigrations, so username lookups use its unique index.
+ * The old miss and the full listings take seconds per operation.
+ *
+ * The export pair writes every user as JSON to a discarding stream, from a
+ * list as getall used to and streamed row by row as /admin/user/export
+ * does. Run with -prof gc to compare what each allocates and retains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserRepositoryBenchmark {
+
+    private static final int ROWS = Integer.getInteger("rows", 1_000_000);
+
+    private JdbcTemplate jdbcTemplate;
+    private UserDatabase userDatabase;
+
+    @Setup
+    public void setUp() {
+        // As in application.properties, so log lines do not swamp the measurement
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.example.rocketpop")).setLevel(Level.WARN);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:userbench;DB_CLOSE_DELAY=-1");
+        new SchemaMigrations(dataSource, "classpath:db/migration", true).migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[] {"First" + i, "Last" + i, "user", i % 50, "bench" + i + "@example.com",
+                "Country" + i % 20, "City" + i % 200, i % 100, username(i),
+                "$pbkdf2-sha256$i=600000$c2FsdHNhbHRzYWx0c2FsdA$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g", ""});
+            if (rows.size() == 10_000 || i == ROWS - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (first_name, last_name, title, department, email, country, city, location, username, password, salt) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        userDatabase = new UserDatabase();
+        ReflectionTestUtils.setField(userDatabase, "jdbcTemplate", jdbcTemplate);
+    }
+
+    private static String username(int i) {
+        return String.format("bench%07d", i);
+    }
+
+    private static String randomUsername() {
+        return username(ThreadLocalRandom.current().nextInt(ROWS));
+    }
+
+    @Benchmark
+    public User getUserSelectStar() {
+        List<User> users = jdbcTemplate.query("SELECT * FROM users WHERE username = ?", new Object[] {randomUsername()}, new ByNameMapper());
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userDatabase.getUser(randomUsername());
+    }
+
+    @Benchmark
+    public boolean userExistsMappingRows() {
+        return !jdbcTemplate.query("SELECT * FROM users WHERE username = ?", new Object[] {randomUsername()}, new ByNameMapper()).isEmpty();
+    }
+
+    @Benchmark
+    public boolean userExists() {
+        return userDatabase.userExists(randomUsername());
+    }
+
+    @Benchmark
+    public Object getUserMissListingAll() {
+        List<User> users = jdbcTemplate.query("SELECT * FROM users WHERE username = ?", new Object[] {"nosuchuser"}, new ByNameMapper());
+        if (users.isEmpty()) {
+            // What the miss path used to do, with its per user log lines switched off
+            return jdbcTemplate.query("SELECT * FROM users", new ByNameMapper());
+        }
+        return users.get(0);
+    }
+
+    @Benchmark
+    public User getUserMiss() {
+        return userDatabase.getUser("nosuchuser");
+    }
+
+    @Benchmark
+    public List<User> getAllUsersSelectStar() {
+        return jdbcTemplate.query("SELECT * FROM users", new ByNameMapper());
+    }
+
+    @Benchmark
+    public List<User> getAllUsers() {
+        return userDatabase.getAllUsers();
+    }
+
+    @Benchmark
+    public void exportFromList() throws IOException {
+        List<User> users = userDatabase.getAllUsers();
+        UserExportWriter writer = UserExportWriter.open(UserExportWriter.Format.JSON, OutputStream.nullOutputStream());
+        for (User user : users) {
+            writer.write(user);
+        }
+        writer.close();
+    }
+
+    @Benchmark
+    public void exportStreaming() throws IOException {
+        UserExportWriter writer = UserExportWriter.open(UserExportWriter.Format.JSON, OutputStream.nullOutputStream());
+        userDatabase.forEachUser(null, user -> {
+            try {
+                writer.write(user);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.close();
+    }
+
+    /**
+     * The old UserDatabase.UserMapper, resolving every column by name on every row
+     */
+    private static final class ByNameMapper implements RowMapper<User> {
+        @Override
+        public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+            var user = new User(rs.getString("username"), rs.getString("password"), rs.getString("salt"));
+            user.setId(rs.getInt("id"));
+            user.setFirstName(rs.getString("first_name"));
+            user.setLastName(rs.getString("last_name"));
+            user.setTitle(rs.getString("title"));
+            user.setDepartment(rs.getInt("department"));
+            user.setEmail(rs.getString("email"));
+            user.setCountry(rs.getString("country"));
+            user.setCity(rs.getString("city"));
+            user.setLocation(rs.getInt("location"));
+            return user;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UserRepositoryBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.rocketpop.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.JwtKeyring;
+import com.example.rocketpop.util.VerifiedTokenCache;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Verify latency over a hot working set of tokens, with the verified token
+ * cache against full signature verification on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class VerifiedTokenCacheBenchmark {
+
+    @Param("100000")
+    public int workingSet;
+
+    private String[] tokens;
+    private JWTUtil cached;
+    private JWTUtil uncached;
+
+    @Setup
+    public void setUp() {
+        JwtKeyring keyring = new JwtKeyring(JwtVerifyBenchmark.USER_SECRET, JwtVerifyBenchmark.ADMIN_SECRET);
+        Date expiration = new Date(System.currentTimeMillis() + 86400000);
+        tokens = new String[workingSet];
+        for (int i = 0; i < workingSet; i++) {
+            tokens[i] = Jwts.builder()
+                .header().keyId(JwtKeyring.USER_KEY_ID).and()
+                .issuer("Auth Service")
+                .claim("id", i)
+                .claim("title", "user")
+                .expiration(expiration)
+                .signWith(keyring.getKey(false))
+                .compact();
+        }
+
+        cached = jwtUtil(keyring, new VerifiedTokenCache(workingSet * 2));
+        // Zero capacity rounds up to one entry per segment, so nearly every call misses
+        uncached = jwtUtil(keyring, new VerifiedTokenCache(0));
+        for (String token : tokens) {
+            cached.verify(token);
+        }
+    }
+
+    private static JWTUtil jwtUtil(JwtKeyring keyring, VerifiedTokenCache cache) {
+        JWTUtil jwtUtil = new JWTUtil();
+        ReflectionTestUtils.setField(jwtUtil, "keyring", keyring);
+        ReflectionTestUtils.setField(jwtUtil, "tokenCache", cache);
+        return jwtUtil;
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return cached.verify(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyUncached() {
+        return uncached.verify(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(VerifiedTokenCacheBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.rocketpop.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.json.JSONObject;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.rocketpop.model.AuthResult;
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.service.UserService;
+import com.example.rocketpop.util.InFlightRequests;
+import com.example.rocketpop.util.PasswordHasher;
+
+/**
+ * Platform against virtual request threads under a large number of
+ * concurrent clients. For each mode the application is started as in
+ * LoadHarness, then every client (a virtual thread on the
+ * client side) sends requests back to back to /user/info and then to /login.
+ * Reports the most requests the server had in flight at once, latency
+ * percentiles of successful requests and the count of each status.
+ *
+ * Not a JMH benchmark, it needs a running server. Settings are system
+ * properties: -Dclients=5000 -Drequests=20 -Dmodes=platform,virtual, and
+ * -Ddb=mysql to measure on MySQL rather than H2, whose driver pins virtual threads
+ */
+public class VirtualThreadComparison {
+
+    private static final int CLIENTS = Integer.getInteger("clients", 5000);
+    private static final int REQUESTS = Integer.getInteger("requests", 20);
+    private static final String[] MODES = System.getProperty("modes", "platform,virtual").split(",");
+
+    private static final String USERNAME = "loaduser";
+    private static final String PASSWORD = LoadHarness.PASSWORD;
+
+    public static void main(String[] args) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (String mode : MODES) {
+            try (ConfigurableApplicationContext context = start(mode.equals("virtual"))) {
+                lines.add(run(context, mode, "/user/info"));
+                lines.add(run(context, mode, "/login"));
+            }
+        }
+        System.out.printf("%n%d clients, %d requests each, %s%n", CLIENTS, REQUESTS, LoadHarness.DB);
+        System.out.printf("%-9s %-11s %9s %9s %9s %9s  %s%n", "mode", "endpoint", "in-flight", "req/s", "p50 ms", "p99 ms", "statuses");
+        lines.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        if (virtual) {
+            return LoadHarness.start("virtual");
+        }
+        // Let the platform pool accept every client too, so only the thread count differs
+        return LoadHarness.start("", "--server.tomcat.max-connections=10000", "--server.tomcat.accept-count=1000");
+    }
+
+    private static String run(ConfigurableApplicationContext context, String mode, String endpoint) throws Exception {
+        PasswordHasher passwordHasher = context.getBean(PasswordHasher.class);
+        UserService userService = context.getBean(UserService.class);
+        InFlightRequests inFlight = context.getBean(InFlightRequests.class);
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        if (userService.findUserByUsername(USERNAME).isEmpty()) {
+            User user = new User(USERNAME, passwordHasher.encode(PASSWORD), "");
+            user.setTitle("user");
+            userService.createUser(user);
+        }
+        AuthResult login = userService.authenticateWithPassword(USERNAME, PASSWORD);
+        String token = ((AuthResult.Success) login).token();
+
+        HttpRequest request = endpoint.equals("/login")
+            ? HttpRequest.newBuilder(URI.create(base + endpoint))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(new JSONObject()
+                    .put("username", USERNAME)
+                    .put("password", passwordHasher.rsaEncrypt(PASSWORD))
+                    .toString()))
+                .build()
+            : HttpRequest.newBuilder(URI.create(base + endpoint))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                .executor(clients)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+            // A short warm up so JIT and pool start up are not in the numbers
+            send(client, request, 200, new long[200], new int[600]);
+            inFlight.resetPeak();
+
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Result>> futures = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    ready.await();
+                    long[] latencies = new long[REQUESTS];
+                    int[] statuses = new int[600];
+                    int ok = send(client, request, REQUESTS, latencies, statuses);
+                    return new Result(Arrays.copyOf(latencies, ok), statuses);
+                }));
+            }
+
+            long started = System.nanoTime();
+            ready.countDown();
+            List<long[]> latencies = new ArrayList<>(CLIENTS);
+            int[] statuses = new int[600];
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                latencies.add(result.latencies());
+                for (int s = 0; s < statuses.length; s++) {
+                    statuses[s] += result.statuses()[s];
+                }
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            Map<Integer, Integer> counts = new TreeMap<>();
+            for (int s = 0; s < statuses.length; s++) {
+                if (statuses[s] > 0) {
+                    counts.put(s, statuses[s]);
+                }
+            }
+            return String.format("%-9s %-11s %9d %9.0f %9.1f %9.1f  %s", mode, endpoint, inFlight.getPeak(),
+                (double) CLIENTS * REQUESTS / seconds, LoadHarness.percentile(all, 0.50), LoadHarness.percentile(all, 0.99), counts);
+        }
+    }
+
+    /**
+     * Send the request count times, recording latencies of 2xx answers
+     * @return the number of latencies recorded
+     */
+    private static int send(HttpClient client, HttpRequest request, int count, long[] latencies, int[] statuses) {
+        int ok = 0;
+        for (int i = 0; i < count; i++) {
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                // Connection refused or reset, counted as status 0
+                status = 0;
+            }
+            if (status / 100 == 2) {
+                latencies[ok++] = System.nanoTime() - sent;
+            }
+            statuses[status]++;
+        }
+        return ok;
+    }
+
+    private record Result(long[] latencies, int[] statuses) {}
+}
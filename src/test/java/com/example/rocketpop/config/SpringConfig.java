@@ -3,6 +3,7 @@ package com.example.rocketpop.config;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 
 import com.example.rocketpop.repository.UserDatabase;
 
@@ -11,6 +12,7 @@ import com.example.rocketpop.repository.UserDatabase;
 public class SpringConfig {
 
     @Bean
+    @DependsOn("schemaMigrations")
     public UserDatabase userDatabase() {
         return new UserDatabase();
     }
@@ -1,7 +1,13 @@
 package com.example.rocketpop.controller;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,19 +17,25 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.RevocationDatabase;
 import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.service.RevocationService;
 import com.example.rocketpop.util.JWTUtil;
 import com.example.rocketpop.util.PasswordHasher;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +55,12 @@ public class AdminControllerTests {
     @Autowired
     private JWTUtil jwtUtil;
 
+    @Autowired
+    private RevocationDatabase revocationDatabase;
+
+    @Autowired
+    private RevocationService revocationService;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     private final Logger logger = LoggerFactory.getLogger(AdminControllerTests.class);
@@ -83,6 +101,8 @@ public class AdminControllerTests {
     @AfterEach
     public void tearDown() {
         userDatabase.deleteAllUsers();
+        revocationDatabase.deleteAll();
+        revocationService.rebuild();
     }
 
     // Test Create User
@@ -183,10 +203,147 @@ public class AdminControllerTests {
         mockMvc.perform(get("/admin/user/getall")
                 .header("Authorization", "Bearer " + adminToken))
                 .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(2)))
+                .andExpect(jsonPath("$.users[*].username", hasItems("admin", "testuser")))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    public void testGetAllUsersUnpaged() throws Exception {
+        logger.info("testGetAllUsersUnpaged called");
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("unpaged", "true"))
+                .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[*].username", hasItems("admin", "testuser")));
     }
 
+    @Test
+    public void testExportUsersJson() throws Exception {
+        logger.info("testExportUsersJson called");
+        mockMvc.perform(get("/admin/user/export")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Content-Disposition", containsString("users.json")))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].username").value("admin"))
+                .andExpect(jsonPath("$[1].email").value("user@test.com"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    @Test
+    public void testExportUsersNdjson() throws Exception {
+        logger.info("testExportUsersNdjson called");
+        String body = mockMvc.perform(get("/admin/user/export")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("admin", JsonPath.read(lines[0], "$.username"));
+        assertEquals("testuser", JsonPath.read(lines[1], "$.username"));
+    }
+
+    @Test
+    public void testExportUsersCsv() throws Exception {
+        logger.info("testExportUsersCsv called");
+        String body = mockMvc.perform(get("/admin/user/export")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("format", "csv")
+                .param("username", "test"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id,username,"));
+        assertTrue(lines[1].contains(",testuser,"));
+    }
+
+    @Test
+    public void testExportUsersBadFormat() throws Exception {
+        logger.info("testExportUsersBadFormat called");
+        mockMvc.perform(get("/admin/user/export")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExportUsersUnauthorized() throws Exception {
+        logger.info("testExportUsersUnauthorized called");
+        mockMvc.perform(get("/admin/user/export")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testGetAllUsersPaged() throws Exception {
+        logger.info("testGetAllUsersPaged called");
+        MvcResult first = mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(1)))
+                .andExpect(jsonPath("$.users[0].username").value("admin"))
+                .andExpect(jsonPath("$.next").value(containsString("limit=1")))
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("limit", "1")
+                .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(1)))
+                .andExpect(jsonPath("$.users[0].username").value("testuser"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    public void testGetAllUsersPageSurvivesDelete() throws Exception {
+        logger.info("testGetAllUsersPageSurvivesDelete called");
+        MvcResult first = mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("limit", "1"))
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        // An offset would now skip testuser, the cursor does not
+        userDatabase.deleteUserByUsername("admin");
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("limit", "1")
+                .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].username").value("testuser"));
+    }
+
+    @Test
+    public void testGetAllUsersInvalidCursor() throws Exception {
+        logger.info("testGetAllUsersInvalidCursor called");
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("after", "not a cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+
+    @Test
+    public void testGetAllUsersInvalidLimit() throws Exception {
+        logger.info("testGetAllUsersInvalidLimit called");
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetAllUsersUnauthorized() throws Exception {
         logger.info("testGetAllUsersUnauthorized called");
@@ -202,8 +359,8 @@ public class AdminControllerTests {
                 .header("Authorization", "Bearer " + adminToken)
                 .param("username", "test"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].username").value("testuser"));
+                .andExpect(jsonPath("$.users", hasSize(1)))
+                .andExpect(jsonPath("$.users[0].username").value("testuser"));
     }
 
     // Test Get Specific User
@@ -416,6 +573,103 @@ public class AdminControllerTests {
                 .header("Authorization", "Bearer " + adminToken)
                 .param("username", "nonexistentuser"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(0)));
+                .andExpect(jsonPath("$.users", hasSize(0)));
+    }
+
+    // Test Revocation
+    @Test
+    public void testRevokeTokenByToken() throws Exception {
+        logger.info("testRevokeTokenByToken called");
+        User otherAdmin = new User("admin2", "hash", "");
+        otherAdmin.setTitle("admin");
+        String revokedToken = jwtUtil.generateAdminToken(otherAdmin);
+
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + revokedToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/admin/token/revoke")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("token", revokedToken))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Token revoked successfully"));
+
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + revokedToken))
+                .andExpect(status().isUnauthorized());
+        // Other tokens are unaffected
+        mockMvc.perform(get("/admin/user/getall")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testRevokeTokenByJti() throws Exception {
+        logger.info("testRevokeTokenByJti called");
+        String jti = jwtUtil.verify(userToken).getTokenId();
+
+        mockMvc.perform(post("/admin/token/revoke")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("jti", jti))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jti").value(jti));
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRevokeTokenSurvivesRebuild() throws Exception {
+        logger.info("testRevokeTokenSurvivesRebuild called");
+        revocationService.revokeToken(jwtUtil.verify(userToken).getTokenId(), null);
+        revocationService.rebuild();
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRevokeTokenInvalid() throws Exception {
+        logger.info("testRevokeTokenInvalid called");
+        mockMvc.perform(post("/admin/token/revoke")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("token", "not.a.token"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Token is invalid or already expired"));
+    }
+
+    @Test
+    public void testRevokeTokenUnauthorized() throws Exception {
+        logger.info("testRevokeTokenUnauthorized called");
+        mockMvc.perform(post("/admin/token/revoke")
+                .header("Authorization", "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("token", adminToken))))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRevokeUser() throws Exception {
+        logger.info("testRevokeUser called");
+        User storedUser = userDatabase.getUser("testuser");
+        String storedUserToken = jwtUtil.generateUserToken(storedUser);
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + storedUserToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/admin/user/revoke/" + storedUser.getId())
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("User tokens revoked successfully"));
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + storedUserToken))
+                .andExpect(status().isUnauthorized());
     }
 }
@@ -1,24 +1,45 @@
 package com.example.rocketpop.controller;
 
+import static org.hamcrest.Matchers.hasItems;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import com.example.rocketpop.model.User;
 import com.example.rocketpop.repository.UserDatabase;
+import com.example.rocketpop.util.HashingExecutor;
+import com.example.rocketpop.util.LoginThrottle;
 import com.example.rocketpop.util.PasswordHasher;
+import com.example.rocketpop.util.X25519CredentialTransport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
@@ -39,6 +60,12 @@ public class AuthControllerTests {
     @Autowired
     private PasswordHasher passwordHasher;
 
+    @Autowired
+    private X25519CredentialTransport x25519Transport;
+
+    @Autowired
+    private AuthController authController;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     private final Logger logger = LoggerFactory.getLogger(AuthControllerTests.class);
@@ -180,4 +207,209 @@ public class AuthControllerTests {
                 .andExpect(jsonPath("$.token").exists())
                 .andExpect(jsonPath("$.message").value("Login successful"));
     }
+
+    @Test
+    public void testLoginUpgradesLegacyHash() throws Exception {
+        String encodedPassword = passwordHasher.rsaEncrypt("user123");
+        String loginJson = objectMapper.writeValueAsString(
+            new AuthController.LoginRequest() {{
+                setUsername("testuser");
+                setPassword(encodedPassword);
+            }}
+        );
+
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson))
+                .andExpect(status().isOk());
+
+        // The legacy SHA-512 digest was replaced while the password was known
+        User upgraded = userDatabase.getUser("testuser");
+        assertTrue(upgraded.getPassword().startsWith("$pbkdf2-sha256$"));
+        assertFalse(passwordHasher.needsRehash(upgraded.getPassword()));
+
+        // And the new hash still logs in
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                    new AuthController.LoginRequest() {{
+                        setUsername("testuser");
+                        setPassword(passwordHasher.rsaEncrypt("user123"));
+                    }}
+                )))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testLoginIsOneDatabaseRoundTrip() throws Exception {
+        // Upgrade the legacy hash first, that login also writes the new hash
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson("testuser", passwordHasher.rsaEncrypt("user123"))))
+                .andExpect(status().isOk());
+
+        UserDatabase target = AopTestUtils.getTargetObject(userDatabase);
+        JdbcTemplate original = (JdbcTemplate) ReflectionTestUtils.getField(target, "jdbcTemplate");
+        AtomicInteger statements = new AtomicInteger();
+        ReflectionTestUtils.setField(target, "jdbcTemplate", new JdbcTemplate(countingDataSource(original.getDataSource(), statements)));
+        try {
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson("testuser", passwordHasher.rsaEncrypt("user123"))))
+                    .andExpect(status().isOk());
+            assertEquals(1, statements.getAndSet(0), "successful login");
+
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson("testuser", passwordHasher.rsaEncrypt("wrongpassword"))))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.error").value("Invalid password"));
+            assertEquals(1, statements.getAndSet(0), "wrong password");
+
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson("nobody", passwordHasher.rsaEncrypt("user123"))))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.error").value("Invalid username"));
+            // Ruled out by the username filter without a query
+            assertEquals(0, statements.getAndSet(0), "unknown username");
+        } finally {
+            ReflectionTestUtils.setField(target, "jdbcTemplate", original);
+        }
+    }
+
+    private String loginJson(String username, String password) throws Exception {
+        AuthController.LoginRequest request = new AuthController.LoginRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return objectMapper.writeValueAsString(request);
+    }
+
+    /**
+     * Wrap a DataSource so every statement prepared or created on its connections is counted
+     */
+    private static DataSource countingDataSource(DataSource dataSource, AtomicInteger statements) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[] {DataSource.class},
+            (proxy, method, args) -> {
+                Object result = invoke(dataSource, method, args);
+                if (!(result instanceof Connection connection)) {
+                    return result;
+                }
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                    (connectionProxy, connectionMethod, connectionArgs) -> {
+                        String name = connectionMethod.getName();
+                        if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                            statements.incrementAndGet();
+                        }
+                        return invoke(connection, connectionMethod, connectionArgs);
+                    });
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void testLoginWithX25519Transport() throws Exception {
+        String encodedPassword = x25519Transport.encrypt("user123");
+        String loginJson = objectMapper.writeValueAsString(
+            new AuthController.LoginRequest() {{
+                setUsername("testuser");
+                setPassword(encodedPassword);
+            }}
+        );
+
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists());
+    }
+
+    @Test
+    public void testCredentialTransport() throws Exception {
+        mockMvc.perform(get("/credential-transport"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scheme").value("RSA"))
+                .andExpect(jsonPath("$.publicKey").exists())
+                .andExpect(jsonPath("$.accepted", hasItems("RSA", "X25519")));
+    }
+
+    @Test
+    public void testLoginThrottledAfterRepeatedFailures() throws Exception {
+        // 3 failures lock the username out, checked before any decryption or lookup
+        LoginThrottle strict = new LoginThrottle(10, 10, 3, 100, 100, 100, 60, 600, 1000, 0);
+        Object original = ReflectionTestUtils.getField(authController, "loginThrottle");
+        ReflectionTestUtils.setField(authController, "loginThrottle", strict);
+        try {
+            for (int i = 0; i < 3; i++) {
+                mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loginJson("testuser", passwordHasher.rsaEncrypt("wrongpassword"))))
+                        .andExpect(status().isUnauthorized());
+            }
+
+            // Even the right password is refused while locked out
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson("testuser", passwordHasher.rsaEncrypt("user123"))))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "60"));
+
+            // Other users from the same address still get in
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson("admin", passwordHasher.rsaEncrypt("admin123"))))
+                    .andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(authController, "loginThrottle", original);
+        }
+    }
+
+    @Test
+    public void testLoginShedsLoadWhenHashingIsSaturated() throws Exception {
+        // A 1 thread executor with no queue, kept busy for the whole test
+        HashingExecutor saturated = new HashingExecutor(1, 0, 3);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = new Thread(() -> saturated.call(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        busy.start();
+        started.await();
+
+        Object original = ReflectionTestUtils.getField(authController, "hashingExecutor");
+        ReflectionTestUtils.setField(authController, "hashingExecutor", saturated);
+        try {
+            String encodedPassword = passwordHasher.rsaEncrypt("user123");
+            String loginJson = objectMapper.writeValueAsString(
+                new AuthController.LoginRequest() {{
+                    setUsername("testuser");
+                    setPassword(encodedPassword);
+                }}
+            );
+
+            mockMvc.perform(post("/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(loginJson))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "3"));
+
+            // Cheap endpoints are unaffected
+            mockMvc.perform(get("/ping"))
+                    .andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(authController, "hashingExecutor", original);
+            release.countDown();
+            busy.join();
+            saturated.shutdown();
+        }
+    }
 }
@@ -0,0 +1,228 @@
+package com.example.rocketpop.controller;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.util.JWTUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class IntrospectionControllerTests {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private String userToken;
+    private String adminToken;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        User user = new User("introuser", "hash", "salt");
+        user.setId(7);
+        user.setTitle("user");
+        userToken = jwtUtil.generateUserToken(user);
+
+        User admin = new User("introadmin", "hash", "salt");
+        admin.setId(8);
+        admin.setTitle("admin");
+        adminToken = jwtUtil.generateAdminToken(admin);
+    }
+
+    @Test
+    public void testIntrospectBatch() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("tokens", List.of(userToken, "not.a.token", "Bearer " + adminToken)));
+
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(3)))
+                .andExpect(jsonPath("$.results[0].active").value(true))
+                .andExpect(jsonPath("$.results[0].role").value("user"))
+                .andExpect(jsonPath("$.results[0].claims.id").value(7))
+                .andExpect(jsonPath("$.results[0].exp").isNumber())
+                .andExpect(jsonPath("$.results[1].active").value(false))
+                .andExpect(jsonPath("$.results[1].claims").doesNotExist())
+                .andExpect(jsonPath("$.results[2].active").value(true))
+                .andExpect(jsonPath("$.results[2].role").value("admin"));
+    }
+
+    @Test
+    public void testIntrospectBatch_ParallelKeepsOrder() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tokens.add(i % 3 == 0 ? "invalid" + i : userToken);
+        }
+        String body = objectMapper.writeValueAsString(Map.of("tokens", tokens));
+
+        MvcResult result = mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(500)))
+                .andReturn();
+
+        List<?> results = (List<?>) objectMapper.readValue(result.getResponse().getContentAsString(), Map.class).get("results");
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 3 != 0, ((Map<?, ?>) results.get(i)).get("active"), "result " + i);
+        }
+    }
+
+    @Test
+    public void testIntrospectBatch_Empty() throws Exception {
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("tokens is required"));
+    }
+
+    @Test
+    public void testIntrospectBatch_TooLarge() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("tokens", Collections.nCopies(1001, userToken)));
+
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void testIntrospectStream() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            body.append(i % 2 == 0 ? userToken : "garbage").append('\n');
+        }
+
+        MvcResult result = mockMvc.perform(post("/auth/introspect/batch")
+                .header(IntrospectionController.SECRET_HEADER, "test-introspection-secret")
+                .contentType(IntrospectionController.NDJSON)
+                .accept(IntrospectionController.NDJSON)
+                .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(IntrospectionController.NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(600, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JSONObject line = new JSONObject(lines[i]);
+            assertEquals(i, line.getInt("index"));
+            assertEquals(i % 2 == 0, line.getBoolean("active"));
+        }
+    }
+
+    @Test
+    public void testIntrospectBatch_ClientSecret() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("tokens", List.of(userToken)));
+
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header(IntrospectionController.SECRET_HEADER, "test-introspection-secret")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].active").value(true))
+                .andExpect(jsonPath("$.results[0].claims.id").value(7));
+    }
+
+    @Test
+    public void testIntrospectBatch_Unauthorized() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("tokens", List.of(userToken, adminToken)));
+
+        // No credentials, a user token, and a wrong secret all learn nothing
+        mockMvc.perform(post("/auth/introspect/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].active").value(false))
+                .andExpect(jsonPath("$.results[0].claims").doesNotExist())
+                .andExpect(jsonPath("$.results[1].active").value(false))
+                .andExpect(jsonPath("$.results[1].role").doesNotExist());
+
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(jsonPath("$.results[0].active").value(false));
+
+        mockMvc.perform(post("/auth/introspect/batch")
+                .header(IntrospectionController.SECRET_HEADER, "wrong")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(jsonPath("$.results[0].active").value(false));
+    }
+
+    @Test
+    public void testIntrospectStream_Unauthorized() throws Exception {
+        MvcResult result = mockMvc.perform(post("/auth/introspect/batch")
+                .contentType(IntrospectionController.NDJSON)
+                .accept(IntrospectionController.NDJSON)
+                .content(userToken + "\n" + adminToken + "\n"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        for (String line : lines) {
+            JSONObject json = new JSONObject(line);
+            assertFalse(json.getBoolean("active"));
+            assertFalse(json.has("claims"));
+        }
+    }
+
+    @Test
+    public void testIntrospectStream_TooLarge() throws Exception {
+        // introspection.stream.max-tokens is 1000 in the test profile
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1500; i++) {
+            body.append(userToken).append('\n');
+        }
+
+        MvcResult result = mockMvc.perform(post("/auth/introspect/batch")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(IntrospectionController.NDJSON)
+                .accept(IntrospectionController.NDJSON)
+                .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(1001, lines.length);
+        assertEquals(999, new JSONObject(lines[999]).getInt("index"));
+        assertEquals("At most 1000 tokens per stream", new JSONObject(lines[1000]).getString("error"));
+    }
+}
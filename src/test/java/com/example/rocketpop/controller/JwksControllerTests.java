@@ -0,0 +1,73 @@
+package com.example.rocketpop.controller;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.VerifiedToken;
+import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.JwtKeyring;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"jwt.user.algorithm=ES256", "jwt.user.ec.generate=true"})
+@ActiveProfiles("test")
+public class JwksControllerTests {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testGetJwks() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", "max-age=3600, public"))
+                .andExpect(jsonPath("$.keys[0].kty").value("EC"))
+                .andExpect(jsonPath("$.keys[0].crv").value("P-256"))
+                .andExpect(jsonPath("$.keys[0].kid").value(JwtKeyring.USER_EC_KEY_ID));
+    }
+
+    @Test
+    public void testGetJwks_NotModified() throws Exception {
+        MvcResult result = mockMvc.perform(get("/.well-known/jwks.json")).andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/.well-known/jwks.json").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testUserTokenSignedWithEs256() {
+        User user = new User("esuser", "pass", "salt");
+        user.setId(7);
+        user.setTitle("user");
+
+        String token = jwtUtil.generateUserToken(user);
+        VerifiedToken verified = jwtUtil.verify(token);
+
+        assertNotNull(verified);
+        assertEquals(JwtKeyring.USER_EC_KEY_ID, verified.getKeyId());
+        assertEquals("7", verified.getId());
+        assertTrue(jwtUtil.validateToken(token, false));
+        assertEquals("7", jwtUtil.verify(token).getId());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.rocketpop.controller;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.rocketpop.model.User;
+import com.example.rocketpop.repository.CachingUserDatabase;
+import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.PasswordHasher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The test profile turns the user cache off, since most tests write users
+ * through UserDatabase directly. Here it is on and every write goes through
+ * the controllers, so a read after an edit or delete must not see the old row.
+ */
+@SpringBootTest(properties = "users.cache.max-entries=1000")
+@ActiveProfiles("test")
+public class UserCacheControllerTests {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private CachingUserDatabase userDatabase;
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private User testUser;
+    private String adminToken;
+    private String userToken;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        User adminUser = new User("admin", passwordHasher.encode("admin123"), "");
+        adminUser.setEmail("admin@test.com");
+        adminUser.setTitle("admin");
+        userDatabase.createUser(adminUser);
+
+        User user = new User("testuser", passwordHasher.encode("user123"), "");
+        user.setEmail("user@test.com");
+        user.setTitle("user");
+        user.setLocation(2);
+        userDatabase.createUser(user);
+
+        testUser = userDatabase.getUser("testuser");
+        adminToken = jwtUtil.generateAdminToken(userDatabase.getUser("admin"));
+        userToken = jwtUtil.generateUserToken(testUser);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userDatabase.deleteAllUsers();
+    }
+
+    @Test
+    public void testEditThenRead() throws Exception {
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("user@test.com"));
+        mockMvc.perform(get("/admin/user/get/testuser")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("user@test.com"));
+        assertTrue(userDatabase.size() > 0);
+
+        // No password, so the stored hash is kept
+        User edited = new User("testuser", "", "");
+        edited.setId(testUser.getId());
+        edited.setEmail("edited@test.com");
+        edited.setTitle("user");
+        edited.setLocation(7);
+        mockMvc.perform(put("/admin/user/edit")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(edited)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("edited@test.com"))
+                .andExpect(jsonPath("$.location").value(7));
+        mockMvc.perform(get("/admin/user/get/testuser")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("edited@test.com"));
+        // The kept hash still logs in
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson("testuser", "user123")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testDeleteThenLogin() throws Exception {
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson("testuser", "user123")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk());
+        assertTrue(userDatabase.size() > 0);
+
+        mockMvc.perform(post("/admin/user/delete/" + testUser.getId())
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginJson("testuser", "user123")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Invalid username"));
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/admin/user/get/testuser")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isNotFound());
+    }
+
+    private String loginJson(String username, String password) throws Exception {
+        AuthController.LoginRequest request = new AuthController.LoginRequest();
+        request.setUsername(username);
+        request.setPassword(passwordHasher.rsaEncrypt(password));
+        return objectMapper.writeValueAsString(request);
+    }
+}
@@ -121,6 +121,16 @@ public class UserControllerTests {
                 .andExpect(jsonPath("$.error").value("Invalid or expired token"));
     }
 
+    @Test
+    public void testGetSelfForDeletedUser() throws Exception {
+        userDatabase.deleteUserByUsername("testuser");
+
+        mockMvc.perform(get("/user/info")
+                .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("User not found"));
+    }
+
     @Test
     public void testChangePasswordSuccess() throws Exception {
         logger.info("testChangePasswordSuccess called");
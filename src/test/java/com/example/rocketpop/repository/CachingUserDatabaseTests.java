@@ -0,0 +1,211 @@
+package com.example.rocketpop.repository;
+
+import com.example.rocketpop.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CachingUserDatabaseTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private UserDatabase delegate;
+    private CachingUserDatabase cache;
+
+    private static User user(int id, String username) {
+        User user = new User(username, "hash" + id, "");
+        user.setId(id);
+        user.setFirstName("First" + id);
+        return user;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        delegate = mock(UserDatabase.class);
+        cache = new CachingUserDatabase(delegate, 1600, 30, 5000, now::get);
+        when(delegate.getUser("alice")).thenReturn(user(1, "alice"));
+        when(delegate.getUserById("1")).thenReturn(user(1, "alice"));
+    }
+
+    @Test
+    public void testGetUser_MissThenHit() {
+        assertEquals("alice", cache.getUser("alice").getUsername());
+        assertEquals("alice", cache.getUser("alice").getUsername());
+
+        verify(delegate, times(1)).getUser("alice");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLookupsShareOneEntry() {
+        cache.getUser("alice");
+
+        assertEquals("alice", cache.getUserById("1").getUsername());
+        assertEquals("alice", cache.getCredentials("alice").getUsername());
+        assertEquals("hash1", cache.getPassword(1));
+        assertEquals("", cache.getUserSalt("alice"));
+
+        verify(delegate, times(1)).getUser("alice");
+        verify(delegate, never()).getUserById(anyString());
+        verify(delegate, never()).getCredentials(anyString());
+        verify(delegate, never()).getPassword(anyInt());
+        verify(delegate, never()).getUserSalt(anyString());
+    }
+
+    @Test
+    public void testGetUser_OtherCaseGoesToDatabase() {
+        cache.getUser("alice");
+        cache.getUser("Alice");
+
+        verify(delegate).getUser("Alice");
+    }
+
+    @Test
+    public void testGetUser_MissIsNotCached() {
+        assertNull(cache.getUser("nobody"));
+        assertNull(cache.getUser("nobody"));
+
+        verify(delegate, times(2)).getUser("nobody");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGetUser_ReturnsCopies() {
+        cache.getUser("alice").setFirstName("Changed");
+
+        assertEquals("First1", cache.getUser("alice").getFirstName());
+    }
+
+    @Test
+    public void testGetUser_ExpiresAfterTtl() {
+        cache.getUser("alice");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        cache.getUser("alice");
+
+        verify(delegate, times(2)).getUser("alice");
+    }
+
+    @Test
+    public void testUpdateUser_Invalidates() {
+        cache.getUser("alice");
+        User renamed = user(1, "alicia");
+        cache.updateUser(renamed);
+        when(delegate.getUser("alice")).thenReturn(null);
+        when(delegate.getUserById("1")).thenReturn(renamed);
+
+        assertNull(cache.getUser("alice"));
+        assertEquals("alicia", cache.getUserById("1").getUsername());
+    }
+
+    @Test
+    public void testUpdatePasswordHash_Invalidates() {
+        cache.getUser("alice");
+        cache.updatePasswordHash(1, "newhash", "");
+        when(delegate.getPassword(1)).thenReturn("newhash");
+
+        assertEquals("newhash", cache.getPassword(1));
+    }
+
+    @Test
+    public void testDeleteUser_Invalidates() {
+        cache.getUser("alice");
+        cache.deleteUser(1);
+        when(delegate.getUser("alice")).thenReturn(null);
+
+        assertNull(cache.getUser("alice"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDeleteUserByUsername_InvalidatesEveryCase() {
+        cache.getUser("alice");
+        cache.deleteUserByUsername("ALICE");
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDeleteAllUsers_Invalidates() {
+        cache.getUser("alice");
+        cache.deleteAllUsers();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLoadDuringWriteIsNotCached() {
+        // The row is read, then a write lands before the read returns
+        when(delegate.getUser("alice")).thenAnswer(invocation -> {
+            User before = user(1, "alice");
+            cache.updatePasswordHash(1, "newhash", "");
+            return before;
+        });
+        cache.getUser("alice");
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLookupAfterWriteDoesNotJoinOlderLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        when(delegate.getUser("alice")).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                release.await();
+            }
+            return user(1, "alice");
+        });
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<User> first = executor.submit(() -> cache.getUser("alice"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.updatePasswordHash(1, "newhash", "");
+            // Has to send its own query, the one running may have read the old row
+            Future<User> second = executor.submit(() -> cache.getUser("alice"));
+            assertNotNull(second.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testEvictsWhenFull() {
+        // 16 segments of one entry each
+        cache = new CachingUserDatabase(delegate, 16, 30, 5000, now::get);
+        for (int i = 0; i < 1000; i++) {
+            when(delegate.getUserById(String.valueOf(i))).thenReturn(user(i, "user" + i));
+            cache.getUserById(String.valueOf(i));
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictions() >= 1000 - 16);
+    }
+
+    @Test
+    public void testDisabledPassesThrough() {
+        cache = new CachingUserDatabase(delegate, 0, 30, 5000, now::get);
+        cache.getUser("alice");
+        cache.getUser("alice");
+        cache.getCredentials("alice");
+
+        verify(delegate, times(2)).getUser("alice");
+        verify(delegate).getCredentials("alice");
+        assertEquals(0, cache.size());
+    }
+}
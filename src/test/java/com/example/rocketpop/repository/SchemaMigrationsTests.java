@@ -0,0 +1,108 @@
+package com.example.rocketpop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.rocketpop.model.User;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SchemaMigrationsTests {
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @Autowired
+    private UserDatabase userDatabase;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        userDatabase.deleteAllUsers();
+    }
+
+    @Test
+    public void testEveryMigrationApplied() {
+        List<SchemaMigrations.Migration> migrations = schemaMigrations.findMigrations();
+        assertTrue(migrations.size() >= 2);
+
+        Map<Integer, Long> applied = schemaMigrations.getAppliedVersions();
+        for (SchemaMigrations.Migration migration : migrations) {
+            assertEquals(migration.checksum(), applied.get(migration.version()), "V" + migration.version());
+        }
+    }
+
+    @Test
+    public void testMigrateAgainAppliesNothing() {
+        assertEquals(0, schemaMigrations.migrate());
+    }
+
+    @Test
+    public void testChangedMigrationStopsStartup() {
+        Long checksum = schemaMigrations.getAppliedVersions().get(1);
+        jdbcTemplate.update("UPDATE schema_version SET checksum = ? WHERE version = 1", checksum + 1);
+        try {
+            assertThrows(IllegalStateException.class, schemaMigrations::migrate);
+        } finally {
+            jdbcTemplate.update("UPDATE schema_version SET checksum = ? WHERE version = 1", checksum);
+        }
+    }
+
+    @Test
+    public void testUsernameIsUnique() {
+        userDatabase.createUser(new User("uniqueuser", "test", "salt"));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+            "INSERT INTO users (username, password, salt) VALUES (?, ?, ?)", "uniqueuser", "test", "salt"));
+    }
+
+    @Test
+    public void testUsernameLookupsUseIndex() {
+        assertUsesIndex("SELECT id, username, password, salt FROM users WHERE username = 'user1'", "ux_users_username");
+        assertUsesIndex("SELECT salt FROM users WHERE username = 'user1'", "ux_users_username");
+        assertUsesIndex("SELECT EXISTS (SELECT 1 FROM users WHERE username = 'user1')", "ux_users_username");
+        assertUsesIndex("DELETE FROM users WHERE username = 'user1'", "ux_users_username");
+    }
+
+    @Test
+    public void testSearchPageUsesIndex() {
+        assertUsesIndex("SELECT id FROM users WHERE username > 'user1' AND username LIKE '%user%' ORDER BY username LIMIT 100", "ux_users_username");
+    }
+
+    @Test
+    public void testEmailLookupUsesIndex() {
+        assertUsesIndex("SELECT id FROM users WHERE email = 'user1@example.com'", "ix_users_email");
+    }
+
+    @Test
+    public void testDepartmentLookupUsesIndex() {
+        assertUsesIndex("SELECT id FROM users WHERE department = 3", "ix_users_department");
+    }
+
+    @Test
+    public void testLocationLookupUsesIndex() {
+        assertUsesIndex("SELECT id FROM users WHERE location = 7", "ix_users_location");
+    }
+
+    /**
+     * H2 answers EXPLAIN with the plan as one string, naming the index it reads
+     */
+    private void assertUsesIndex(String sql, String index) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        assertTrue(plan.toLowerCase(Locale.ROOT).contains(index), sql + " does not use " + index + ":\n" + plan);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.rocketpop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTests {
+
+    private static final int CALLERS = 16;
+
+    /**
+     * Start a load that blocks until released, then CALLERS - 1 more for the
+     * same key once it is running
+     */
+    private List<Future<String>> startCallers(ExecutorService executor, SingleFlight<String, String> flight,
+                                              CountDownLatch release, AtomicInteger calls, RuntimeException failure) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flight.load("key", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            if (failure != null) {
+                throw failure;
+            }
+            return "value";
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flight.load("key", () -> {
+                calls.incrementAndGet();
+                return "own";
+            })));
+        }
+        // Every other caller has to be waiting before the load finishes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getJoins() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            List<Future<String>> results = startCallers(executor, flight, release, calls, null);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getLoads());
+        assertEquals(CALLERS - 1, flight.getJoins());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testFailureReachesEveryCaller() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            List<Future<String>> results = startCallers(executor, flight, release, calls, failure);
+            release.countDown();
+            for (Future<String> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertSame(failure, e.getCause());
+            }
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testWaitersTimeOut() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(50);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            List<Future<String>> results = startCallers(executor, flight, release, calls, null);
+            for (Future<String> result : results.subList(1, CALLERS)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(QueryTimeoutException.class, e.getCause());
+            }
+            // The caller that started the load still gets its value
+            release.countDown();
+            assertEquals("value", results.get(0).get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(CALLERS - 1, flight.getTimeouts());
+    }
+
+    @Test
+    public void testNextCallAfterLoadStartsNewLoad() {
+        SingleFlight<String, String> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+
+        flight.load("key", () -> "first" + calls.incrementAndGet());
+        assertEquals("second2", flight.load("key", () -> "second" + calls.incrementAndGet()));
+        assertEquals(2, flight.getLoads());
+    }
+
+    @Test
+    public void testDisabledRunsEveryLoad() {
+        SingleFlight<String, String> flight = new SingleFlight<>(0);
+        AtomicInteger calls = new AtomicInteger();
+
+        flight.load("key", () -> flight.load("key", () -> "inner" + calls.incrementAndGet()));
+        assertEquals(1, calls.get());
+        assertEquals(2, flight.getLoads());
+        assertEquals(0, flight.getJoins());
+    }
+}
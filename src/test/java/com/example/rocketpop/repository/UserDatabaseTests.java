@@ -7,6 +7,13 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,7 +23,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.example.rocketpop.model.User;
 
@@ -137,4 +148,178 @@ public class UserDatabaseTests {
         assertNull(missingSalt);
     }
 
+    @Test
+    public void testUsernameFilter_UnknownUsernameSkipsQuery() {
+        // A fresh filter, so it is trusted
+        database.rebuildUsernameFilter();
+        long before = database.getUnknownUsernameRejections();
+
+        assertNull(database.getCredentials("nosuchuser"));
+        assertNull(database.getUserSalt("nosuchuser"));
+        assertFalse(database.mightExist("nosuchuser"));
+        assertFalse(database.mightExist(null));
+
+        assertTrue(database.getUnknownUsernameRejections() - before >= 3);
+    }
+
+    @Test
+    public void testUsernameFilter_TrustedForWholeRefreshInterval() {
+        UserDatabase target = AopTestUtils.getTargetObject(database);
+        database.rebuildUsernameFilter();
+        // As old as the filter gets before the next scheduled rebuild, with the default settings
+        long builtAt = (Long) ReflectionTestUtils.getField(target, "usernameFilterBuiltAt");
+        long refreshInterval = (Long) ReflectionTestUtils.getField(target, "usernameRefreshIntervalSeconds");
+        ReflectionTestUtils.setField(target, "usernameFilterBuiltAt", builtAt - TimeUnit.SECONDS.toNanos(refreshInterval));
+        try {
+            long rejections = database.getUnknownUsernameRejections();
+            long staleLookups = database.getStaleUsernameLookups();
+
+            assertNull(database.getCredentials("nosuchuser"));
+
+            assertEquals(rejections + 1, database.getUnknownUsernameRejections(), "Answered by the filter, no query");
+            assertEquals(staleLookups, database.getStaleUsernameLookups());
+        } finally {
+            ReflectionTestUtils.setField(target, "usernameFilterBuiltAt", builtAt);
+        }
+    }
+
+    @Test
+    public void testUsernameFilter_KeptCurrentByWrites() {
+        database.rebuildUsernameFilter();
+        var user = new User("filteruser", "test", "salt");
+        database.createUser(user);
+        assertTrue(database.mightExist("filteruser"));
+        assertTrue(database.mightExist("FilterUser"), "MySQL matches usernames case insensitively");
+
+        var created = database.getUser("filteruser");
+        created.setUsername("renameduser");
+        database.updateUser(created);
+        assertTrue(database.mightExist("renameduser"));
+        assertNotNull(database.getCredentials("renameduser"));
+    }
+
+    @Test
+    public void testUsernameFilter_RebuildDropsDeleted() {
+        database.deleteUserByUsername("user2");
+        database.rebuildUsernameFilter();
+
+        assertTrue(database.mightExist("user1"));
+        assertNull(database.getCredentials("user2"));
+    }
+
+    @Test
+    public void testUsernameFilter_StaleFilterFallsBackToQuery() {
+        UserDatabase target = AopTestUtils.getTargetObject(database);
+        database.rebuildUsernameFilter();
+        // Added by another instance, so this one's filter has not seen it
+        JdbcTemplate jdbcTemplate = (JdbcTemplate) ReflectionTestUtils.getField(target, "jdbcTemplate");
+        jdbcTemplate.update("INSERT INTO users (username, password, salt) VALUES ('elsewhere', 'test', 'salt')");
+        assertFalse(database.mightExist("elsewhere"));
+
+        long builtAt = (Long) ReflectionTestUtils.getField(target, "usernameFilterBuiltAt");
+        long maxStaleness = (Long) ReflectionTestUtils.getField(target, "usernameMaxStalenessSeconds");
+        ReflectionTestUtils.setField(target, "usernameFilterBuiltAt", builtAt - TimeUnit.SECONDS.toNanos(maxStaleness + 1));
+        try {
+            assertTrue(database.mightExist("elsewhere"));
+            assertNotNull(database.getCredentials("elsewhere"));
+            assertTrue(database.getStaleUsernameLookups() >= 1);
+        } finally {
+            ReflectionTestUtils.setField(target, "usernameFilterBuiltAt", builtAt);
+        }
+        // Found once, so the filter now knows it
+        assertTrue(database.mightExist("elsewhere"));
+    }
+
+    @Test
+    public void testUserExists() {
+        assertTrue(database.userExists("user1"));
+        assertFalse(database.userExists("user3"));
+    }
+
+    @Test
+    public void testGetAllUsers_LeavesOutPasswords() {
+        var users = database.getAllUsers();
+        assertEquals(2, users.size());
+        for (var user : users) {
+            assertNotNull(user.getUsername());
+            assertNull(user.getPassword());
+            assertNull(user.getSalt());
+        }
+        assertNull(database.searchUsers("user1").get(0).getPassword());
+    }
+
+    @Test
+    public void testGetUsersAfterId() {
+        int first = database.getUser("user1").getId();
+        int second = database.getUser("user2").getId();
+
+        var page = database.getUsersAfterId(0, 1);
+        assertEquals(1, page.size());
+        assertEquals(first, page.get(0).getId());
+        assertNull(page.get(0).getPassword());
+
+        page = database.getUsersAfterId(first, 10);
+        assertEquals(1, page.size());
+        assertEquals(second, page.get(0).getId());
+        assertTrue(database.getUsersAfterId(second, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchUsersAfter() {
+        database.createUser(new User("other", "test", "salt"));
+
+        var page = database.searchUsersAfter("user", "", 10);
+        assertEquals(2, page.size());
+        assertEquals("user1", page.get(0).getUsername());
+        assertEquals("user2", page.get(1).getUsername());
+
+        page = database.searchUsersAfter("user", "user1", 10);
+        assertEquals(1, page.size());
+        assertEquals("user2", page.get(0).getUsername());
+    }
+
+    @Test
+    public void testForEachUser() {
+        database.createUser(new User("other", "test", "salt"));
+
+        List<User> users = new ArrayList<>();
+        database.forEachUser(null, users::add);
+        assertEquals(3, users.size());
+        assertTrue(users.get(0).getId() < users.get(1).getId());
+        assertNull(users.get(0).getPassword());
+
+        List<String> found = new ArrayList<>();
+        database.forEachUser("user", user -> found.add(user.getUsername()));
+        assertEquals(List.of("user1", "user2"), found);
+    }
+
+    @Test
+    public void testGetPassword() {
+        var user = database.getUser("user1");
+        assertEquals("test", database.getPassword(user.getId()));
+        assertNull(database.getPassword(-1));
+    }
+
+    @Test
+    public void testGetUser_MissIsOneQuery() {
+        // Deleted without a rebuild, so the name still passes the filter and reaches the table
+        database.deleteUserByUsername("user2");
+
+        UserDatabase target = AopTestUtils.getTargetObject(database);
+        JdbcTemplate original = (JdbcTemplate) ReflectionTestUtils.getField(target, "jdbcTemplate");
+        AtomicInteger queries = new AtomicInteger();
+        ReflectionTestUtils.setField(target, "jdbcTemplate", new JdbcTemplate(new DelegatingDataSource(original.getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                queries.incrementAndGet();
+                return super.getConnection();
+            }
+        }));
+        try {
+            assertNull(database.getUser("user2"));
+            assertEquals(1, queries.get());
+        } finally {
+            ReflectionTestUtils.setField(target, "jdbcTemplate", original);
+        }
+    }
 }
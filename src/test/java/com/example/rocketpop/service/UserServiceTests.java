@@ -1,8 +1,12 @@
 package com.example.rocketpop.service;
 
+import com.example.rocketpop.model.AuthResult;
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.VerifiedToken;
 import com.example.rocketpop.repository.UserDatabase;
 import com.example.rocketpop.util.JWTUtil;
+import com.example.rocketpop.util.PasswordHasher;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -28,6 +32,12 @@ public class UserServiceTests {
     @Mock
     private JWTUtil jwtUtil;
 
+    @Mock
+    private RevocationService revocationService;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
     @InjectMocks
     private UserService userService;
 
@@ -62,95 +72,97 @@ public class UserServiceTests {
         managerUser.setTitle("manager");
     }
 
-    // ========== authenticateUser Tests ==========
+    // ========== authenticateWithPassword Tests ==========
 
     @Test
-    public void testAuthenticateUser_ValidUser() {
-        when(userDatabase.getUser("testuser")).thenReturn(testUser);
+    public void testAuthenticateWithPassword_RehashesOutdatedHash() {
+        when(userDatabase.getCredentials("testuser")).thenReturn(testUser);
+        when(passwordHasher.matches("plain123", "password123", "somesalt")).thenReturn(true);
+        when(passwordHasher.needsRehash("password123")).thenReturn(true);
+        when(passwordHasher.encode("plain123")).thenReturn("$pbkdf2-sha256$i=10000$c2FsdA$aGFzaA");
         when(jwtUtil.generateUserToken(any(User.class))).thenReturn("user.token.here");
-        
-        String token = userService.authenticateUser("testuser", "password123");
-        
-        assertNotNull(token);
-        assertEquals("user.token.here", token);
-        verify(userDatabase).getUser("testuser");
-        verify(jwtUtil).generateUserToken(any(User.class));
+
+        AuthResult result = userService.authenticateWithPassword("testuser", "plain123");
+
+        AuthResult.Success success = assertInstanceOf(AuthResult.Success.class, result);
+        assertEquals("user.token.here", success.token());
+        assertEquals(testUser, success.user());
+        verify(userDatabase).updatePasswordHash(1, "$pbkdf2-sha256$i=10000$c2FsdA$aGFzaA", "");
+        verify(userDatabase, never()).updateUser(any(User.class));
     }
 
     @Test
-    public void testAuthenticateUser_AdminUser() {
-        when(userDatabase.getUser("adminuser")).thenReturn(adminUser);
-        when(jwtUtil.generateAdminToken(any(User.class))).thenReturn("admin.token.here");
-        
-        String token = userService.authenticateUser("adminuser", "adminpass");
-        
-        assertNotNull(token);
-        assertEquals("admin.token.here", token);
-        verify(userDatabase).getUser("adminuser");
-        verify(jwtUtil).generateAdminToken(any(User.class));
+    public void testAuthenticateWithPassword_CurrentHashNotRewritten() {
+        when(userDatabase.getCredentials("testuser")).thenReturn(testUser);
+        when(passwordHasher.matches("plain123", "password123", "somesalt")).thenReturn(true);
+        when(passwordHasher.needsRehash("password123")).thenReturn(false);
+        when(jwtUtil.generateUserToken(any(User.class))).thenReturn("user.token.here");
+
+        userService.authenticateWithPassword("testuser", "plain123");
+
+        verify(userDatabase, never()).updatePasswordHash(anyInt(), anyString(), anyString());
+        verify(passwordHasher, never()).encode(anyString());
     }
 
     @Test
-    public void testAuthenticateUser_ManagerUser() {
-        when(userDatabase.getUser("managername")).thenReturn(managerUser);
-        when(jwtUtil.generateUserToken(any(User.class))).thenReturn("manager.token.here");
-        
-        String token = userService.authenticateUser("managername", "managerpass");
-        
-        assertNotNull(token);
-        verify(jwtUtil).generateUserToken(any(User.class));
+    public void testAuthenticateWithPassword_WrongPassword() {
+        when(userDatabase.getCredentials("testuser")).thenReturn(testUser);
+        when(passwordHasher.matches("wrong", "password123", "somesalt")).thenReturn(false);
+
+        AuthResult result = userService.authenticateWithPassword("testuser", "wrong");
+
+        assertInstanceOf(AuthResult.BadPassword.class, result);
+        verify(userDatabase, never()).updatePasswordHash(anyInt(), anyString(), anyString());
     }
 
     @Test
-    public void testAuthenticateUser_UserNotFound() {
-        when(userDatabase.getUser("nonexistent")).thenReturn(null);
-        
-        assertThrows(RuntimeException.class, () -> {
-            userService.authenticateUser("nonexistent", "anypassword");
+    public void testAuthenticate_CheckDoesNoDatabaseWork() {
+        when(userDatabase.getCredentials("testuser")).thenReturn(testUser);
+        when(jwtUtil.generateUserToken(any(User.class))).thenReturn("user.token.here");
+
+        AuthResult result = userService.authenticate("testuser", user -> {
+            // Looked up before the check, rehash written and token minted after it
+            assertEquals(testUser, user);
+            verify(userDatabase, never()).updatePasswordHash(anyInt(), anyString(), anyString());
+            verify(jwtUtil, never()).generateUserToken(any(User.class));
+            return new UserService.PasswordCheck(true, "$pbkdf2-sha256$i=10000$c2FsdA$aGFzaA");
         });
+
+        assertInstanceOf(AuthResult.Success.class, result);
+        verify(userDatabase).updatePasswordHash(1, "$pbkdf2-sha256$i=10000$c2FsdA$aGFzaA", "");
     }
 
     @Test
-    public void testAuthenticateUser_WrongPassword() {
-        when(userDatabase.getUser("testuser")).thenReturn(testUser);
-        
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            userService.authenticateUser("testuser", "wrongpassword");
-        });
-        
-        assertEquals("Invalid password", exception.getMessage());
+    public void testAuthenticate_UnknownUserIsNotChecked() {
+        when(userDatabase.getCredentials("nobody")).thenReturn(null);
+
+        AuthResult result = userService.authenticate("nobody", user -> fail("Checked an unknown user"));
+
+        assertInstanceOf(AuthResult.UnknownUser.class, result);
     }
 
     @Test
-    public void testAuthenticateUser_NullEmail() {
-        User userWithoutEmail = new User();
-        userWithoutEmail.setUsername("nomail");
-        userWithoutEmail.setPassword("pass");
-        userWithoutEmail.setEmail(null);
-        userWithoutEmail.setTitle("user");
-        
-        when(userDatabase.getUser("nomail")).thenReturn(userWithoutEmail);
-        when(jwtUtil.generateUserToken(any(User.class))).thenReturn("token");
-        
-        userService.authenticateUser("nomail", "pass");
-        
-        verify(jwtUtil).generateUserToken(any(User.class));
+    public void testAuthenticateWithPassword_UnknownUser() {
+        when(userDatabase.getCredentials("nobody")).thenReturn(null);
+
+        AuthResult result = userService.authenticateWithPassword("nobody", "plain123");
+
+        assertInstanceOf(AuthResult.UnknownUser.class, result);
+        verify(userDatabase, times(1)).getCredentials("nobody");
+        verifyNoMoreInteractions(userDatabase);
     }
 
     @Test
-    public void testAuthenticateUser_NullTitle() {
-        User userWithoutTitle = new User();
-        userWithoutTitle.setUsername("notitle");
-        userWithoutTitle.setPassword("pass");
-        userWithoutTitle.setEmail("notitle@example.com");
-        userWithoutTitle.setTitle(null);
-        
-        when(userDatabase.getUser("notitle")).thenReturn(userWithoutTitle);
+    public void testAuthenticateWithPassword_NullTitleGetsUserToken() {
+        testUser.setTitle(null);
+        when(userDatabase.getCredentials("testuser")).thenReturn(testUser);
+        when(passwordHasher.matches("plain123", "password123", "somesalt")).thenReturn(true);
         when(jwtUtil.generateUserToken(any(User.class))).thenReturn("token");
-        
-        userService.authenticateUser("notitle", "pass");
-        
+
+        userService.authenticateWithPassword("testuser", "plain123");
+
         verify(jwtUtil).generateUserToken(any(User.class));
+        verify(jwtUtil, never()).generateAdminToken(any(User.class));
     }
 
     // ========== getUserByUsername Tests ==========
@@ -177,30 +189,27 @@ public class UserServiceTests {
         assertEquals("User not found", exception.getMessage());
     }
 
-    // ========== getUserFromToken Tests ==========
+    @Test
+    public void testFindUserByUsername_NotFoundIsEmpty() {
+        when(userDatabase.getUser("nonexistent")).thenReturn(null);
+        when(userDatabase.getUser("testuser")).thenReturn(testUser);
+
+        assertTrue(userService.findUserByUsername("nonexistent").isEmpty());
+        assertEquals(testUser, userService.findUserByUsername("testuser").orElseThrow());
+    }
 
     @Test
-    public void testGetUserFromToken_UserToken() {
-        when(jwtUtil.isAdminToken("user.token")).thenReturn(false);
-        when(jwtUtil.extractId("user.token", false)).thenReturn("1");
-        when(userDatabase.getUserById("1")).thenReturn(testUser);
-        
-        User result = userService.getUserFromToken("user.token");
-        
-        assertNotNull(result);
-        assertEquals("testuser", result.getUsername());
+    public void testFindUserById_NotFoundIsEmpty() {
+        when(userDatabase.getUserById("99")).thenReturn(null);
+
+        assertTrue(userService.findUserById("99").isEmpty());
     }
 
     @Test
-    public void testGetUserFromToken_AdminToken() {
-        when(jwtUtil.isAdminToken("admin.token")).thenReturn(true);
-        when(jwtUtil.extractId("admin.token", true)).thenReturn("2");
-        when(userDatabase.getUserById("2")).thenReturn(adminUser);
-        
-        User result = userService.getUserFromToken("admin.token");
-        
-        assertNotNull(result);
-        assertEquals("adminuser", result.getUsername());
+    public void testFindUserById_Found() {
+        when(userDatabase.getUserById("1")).thenReturn(testUser);
+
+        assertEquals("testuser", userService.findUserById("1").orElseThrow().getUsername());
     }
 
     // ========== updatePassword Tests ==========
@@ -420,69 +429,61 @@ public class UserServiceTests {
 
     @Test
     public void testValidateAdminToken_Valid() {
-        when(jwtUtil.cleanToken("Bearer admin.token")).thenReturn("admin.token");
-        when(jwtUtil.isAdminToken("admin.token")).thenReturn(true);
-        when(jwtUtil.validateToken("admin.token", true)).thenReturn(true);
-        
-        boolean result = userService.validateAdminToken("Bearer admin.token");
-        
-        assertTrue(result);
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 2).build(), VerifiedToken.Role.ADMIN, "admin");
+
+        assertTrue(userService.validateAdminToken(token));
     }
 
     @Test
     public void testValidateAdminToken_NotAdminToken() {
-        when(jwtUtil.cleanToken("user.token")).thenReturn("user.token");
-        when(jwtUtil.isAdminToken("user.token")).thenReturn(false);
-        
-        boolean result = userService.validateAdminToken("user.token");
-        
-        assertFalse(result);
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 1).build(), VerifiedToken.Role.USER, "user");
+
+        assertFalse(userService.validateAdminToken(token));
     }
 
     @Test
     public void testValidateAdminToken_InvalidToken() {
-        when(jwtUtil.cleanToken("admin.token")).thenReturn("admin.token");
-        when(jwtUtil.isAdminToken("admin.token")).thenReturn(true);
-        when(jwtUtil.validateToken("admin.token", true)).thenReturn(false);
-        
-        boolean result = userService.validateAdminToken("admin.token");
-        
-        assertFalse(result);
+        // VerifiedTokenFilter resolves an invalid or expired token to null
+        assertFalse(userService.validateAdminToken(null));
     }
 
     // ========== validateUserToken Tests ==========
 
     @Test
     public void testValidateUserToken_ValidUserToken() {
-        when(jwtUtil.cleanToken("Bearer user.token")).thenReturn("user.token");
-        when(jwtUtil.isAdminToken("user.token")).thenReturn(false);
-        when(jwtUtil.validateToken("user.token", false)).thenReturn(true);
-        
-        boolean result = userService.validateUserToken("Bearer user.token");
-        
-        assertTrue(result);
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 1).build(), VerifiedToken.Role.USER, "user");
+
+        assertTrue(userService.validateUserToken(token));
     }
 
     @Test
     public void testValidateUserToken_ValidAdminToken() {
-        when(jwtUtil.cleanToken("admin.token")).thenReturn("admin.token");
-        when(jwtUtil.isAdminToken("admin.token")).thenReturn(true);
-        when(jwtUtil.validateToken("admin.token", true)).thenReturn(true);
-        
-        boolean result = userService.validateUserToken("admin.token");
-        
-        assertTrue(result);
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 2).build(), VerifiedToken.Role.ADMIN, "admin");
+
+        assertTrue(userService.validateUserToken(token));
     }
 
     @Test
     public void testValidateUserToken_Invalid() {
-        when(jwtUtil.cleanToken("invalid.token")).thenReturn("invalid.token");
-        when(jwtUtil.isAdminToken("invalid.token")).thenReturn(false);
-        when(jwtUtil.validateToken("invalid.token", false)).thenReturn(false);
-        
-        boolean result = userService.validateUserToken("invalid.token");
-        
-        assertFalse(result);
+        assertFalse(userService.validateUserToken(null));
+    }
+
+    @Test
+    public void testValidateUserToken_Revoked() {
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 1).build(), VerifiedToken.Role.USER, "user");
+        when(revocationService.isRevoked(token)).thenReturn(true);
+
+        assertFalse(userService.validateUserToken(token));
+    }
+
+    @Test
+    public void testValidateAdminToken_Revoked() {
+        VerifiedToken token = new VerifiedToken(Jwts.claims().add("id", 2).build(), VerifiedToken.Role.ADMIN, "admin");
+        assertTrue(userService.validateAdminToken(token));
+
+        when(revocationService.isRevoked(token)).thenReturn(true);
+
+        assertFalse(userService.validateAdminToken(token));
     }
 
     // ========== getUserSalt Tests ==========
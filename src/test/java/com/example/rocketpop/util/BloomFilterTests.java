@@ -0,0 +1,59 @@
+package com.example.rocketpop.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTests {
+
+    @Test
+    public void testMightContain_NoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("jti:" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("jti:" + i));
+        }
+    }
+
+    @Test
+    public void testMightContain_FalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("jti:" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("user:" + i)) {
+                falsePositives++;
+            }
+        }
+        // 1% target, allow some slack for the hash
+        assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testMightContain_EmptyFilter() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("jti:anything"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    public void testSizing() {
+        BloomFilter filter = new BloomFilter(100000, 0.01);
+        // About 9.6 bits and 7 hashes per entry at 1%
+        assertTrue(filter.getBitCount() >= 958506);
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test
+    public void testSizing_MillionUsernames() {
+        // Username filter at 1M users: about 1.14 MiB, against tens of MB for a HashSet of the names
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+        long bytes = filter.getBitCount() / 8;
+        assertTrue(bytes < 1_200_000, "bytes: " + bytes);
+        assertEquals(7, filter.getHashCount());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.rocketpop.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashingExecutorTests {
+
+    private final HashingExecutor hashingExecutor = new HashingExecutor(1, 1, 2);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    public void testCall_ReturnsResult() {
+        assertEquals("hashed", hashingExecutor.call(() -> "hashed"));
+    }
+
+    @Test
+    public void testCall_RethrowsRuntimeException() {
+        assertThrows(NullPointerException.class, () -> hashingExecutor.call(() -> {
+            throw new NullPointerException("no password");
+        }));
+    }
+
+    @Test
+    public void testCall_RejectsWhenQueueIsFull() throws Exception {
+        // One task running and one queued fills a 1 thread, 1 slot executor
+        CountDownLatch started = new CountDownLatch(1);
+        callers.submit(() -> hashingExecutor.call(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> hashingExecutor.call(() -> null));
+        waitForQueueDepth(1);
+
+        assertThrows(RejectedExecutionException.class, () -> hashingExecutor.call(() -> "rejected"));
+        assertEquals(1, hashingExecutor.getRejections());
+        assertEquals(2, hashingExecutor.getRetryAfterSeconds());
+
+        release.countDown();
+        waitForQueueDepth(0);
+        assertEquals("accepted", hashingExecutor.call(() -> "accepted"));
+    }
+
+    @Test
+    public void testBindTo_RegistersMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hashingExecutor.bindTo(registry);
+
+        hashingExecutor.call(() -> "hashed");
+
+        assertNotNull(registry.find("credential.hashing.queue.depth").gauge());
+        assertNotNull(registry.find("credential.hashing.rejections").functionCounter());
+        assertEquals(1, registry.find("credential.hashing.queue.wait").timer().count());
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hashingExecutor.getQueueDepth() != depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(depth, hashingExecutor.getQueueDepth());
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.rocketpop.util;
 
 import com.example.rocketpop.model.User;
+import com.example.rocketpop.model.VerifiedToken;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -129,15 +130,13 @@ public class JWTUtilTests {
         
         String token = jwtUtil.generateUserToken(manager);
         assertNotNull(token);
-        String title = jwtUtil.extractTitle(token, false);
-        assertEquals("manager", title);
+        assertEquals("manager", jwtUtil.verify(token).getTitle());
     }
 
     @Test
     public void testGenerateUserToken_ExtractsId() {
         String token = jwtUtil.generateUserToken(testUser);
-        String id = jwtUtil.extractId(token, false);
-        assertEquals("1", id);
+        assertEquals("1", jwtUtil.verify(token).getId());
     }
 
     // ========== generateAdminToken Tests ==========
@@ -153,98 +152,13 @@ public class JWTUtilTests {
     @Test
     public void testGenerateAdminToken_ContainsCorrectType() {
         String token = jwtUtil.generateAdminToken(adminUser);
-        assertTrue(jwtUtil.isAdminToken(token));
+        assertTrue(jwtUtil.verify(token).isAdmin());
     }
 
     @Test
     public void testGenerateAdminToken_ExtractsId() {
         String token = jwtUtil.generateAdminToken(adminUser);
-        String id = jwtUtil.extractId(token, true);
-        assertEquals("2", id);
-    }
-
-    // ========== extractId Tests ==========
-
-    @Test
-    public void testExtractId_UserToken() {
-        String id = jwtUtil.extractId(validUserToken, false);
-        assertEquals("1", id);
-    }
-
-    @Test
-    public void testExtractId_AdminToken() {
-        String id = jwtUtil.extractId(validAdminToken, true);
-        assertEquals("2", id);
-    }
-
-    @Test
-    public void testExtractId_WrongSecretFails() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractId(validUserToken, true); // Using admin secret for user token
-        });
-    }
-
-    @Test
-    public void testExtractId_ExpiredToken() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractId(expiredUserToken, false);
-        });
-    }
-
-    // ========== extractEmail Tests ==========
-
-    @Test
-    public void testExtractEmail_UserToken() {
-        String email = jwtUtil.extractEmail(validUserToken, false);
-        assertNull(email); // Email is not included in JWT claims
-    }
-
-    @Test
-    public void testExtractEmail_AdminToken() {
-        String email = jwtUtil.extractEmail(validAdminToken, true);
-        assertNull(email); // Email is not included in JWT claims
-    }
-
-    @Test
-    public void testExtractEmail_WrongSecretFails() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractEmail(validAdminToken, false); // Using user secret for admin token
-        });
-    }
-
-    @Test
-    public void testExtractEmail_ExpiredTokenFails() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractEmail(expiredUserToken, false);
-        });
-    }
-
-    // ========== extractTitle Tests ==========
-
-    @Test
-    public void testExtractTitle_UserToken() {
-        String title = jwtUtil.extractTitle(validUserToken, false);
-        assertEquals("manager", title);
-    }
-
-    @Test
-    public void testExtractTitle_AdminToken() {
-        String title = jwtUtil.extractTitle(validAdminToken, true);
-        assertEquals("admin", title);
-    }
-
-    @Test
-    public void testExtractTitle_WrongSecretFails() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractTitle(validUserToken, true);
-        });
-    }
-
-    @Test
-    public void testExtractTitle_ExpiredTokenFails() {
-        assertThrows(Exception.class, () -> {
-            jwtUtil.extractTitle(expiredUserToken, false);
-        });
+        assertEquals("2", jwtUtil.verify(token).getId());
     }
 
     // ========== validateToken Tests ==========
@@ -304,31 +218,68 @@ public class JWTUtilTests {
         }
     }
 
-    // ========== isAdminToken Tests ==========
+    // ========== verify Tests ==========
+
+    @Test
+    public void testVerify_UserToken() {
+        VerifiedToken token = jwtUtil.verify("Bearer " + validUserToken);
+        assertNotNull(token);
+        assertFalse(token.isAdmin());
+        assertEquals(JwtKeyring.USER_KEY_ID, token.getKeyId());
+        assertEquals("1", token.getId());
+        assertNotNull(token.getExpiration());
+    }
+
+    @Test
+    public void testVerify_AdminToken() {
+        VerifiedToken token = jwtUtil.verify(validAdminToken);
+        assertNotNull(token);
+        assertTrue(token.isAdmin());
+        assertEquals(JwtKeyring.ADMIN_KEY_ID, token.getKeyId());
+        assertEquals("2", token.getId());
+    }
+
+    @Test
+    public void testVerify_LegacyAdminTokenWithoutKeyId() {
+        String legacy = Jwts.builder()
+                .claim("id", 2)
+                .claim("title", "admin")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(jwtUtil.getAdminSecretKey())
+                .compact();
+        VerifiedToken token = jwtUtil.verify(legacy);
+        assertNotNull(token);
+        assertTrue(token.isAdmin());
+    }
 
     @Test
-    public void testIsAdminToken_UserToken() {
-        assertFalse(jwtUtil.isAdminToken(validUserToken));
+    public void testVerify_Title() {
+        assertEquals("manager", jwtUtil.verify(validUserToken).getTitle());
+        assertEquals("admin", jwtUtil.verify(validAdminToken).getTitle());
     }
 
     @Test
-    public void testIsAdminToken_AdminToken() {
-        assertTrue(jwtUtil.isAdminToken(validAdminToken));
+    public void testVerify_UserTokenIsNotAdmin() {
+        assertFalse(jwtUtil.verify(validUserToken).isAdmin());
     }
 
     @Test
-    public void testIsAdminToken_InvalidToken() {
-        assertFalse(jwtUtil.isAdminToken("invalid.token"));
+    public void testVerify_EmailNotInClaims() {
+        assertNull(jwtUtil.verify(validUserToken).getClaims().get("email"));
+        assertNull(jwtUtil.verify(validAdminToken).getClaims().get("email"));
     }
 
     @Test
-    public void testIsAdminToken_NullToken() {
-        assertFalse(jwtUtil.isAdminToken(null));
+    public void testVerify_ExpiredToken() {
+        assertNull(jwtUtil.verify(expiredUserToken));
+        assertNull(jwtUtil.verify(expiredAdminToken));
     }
 
     @Test
-    public void testIsAdminToken_EmptyToken() {
-        assertFalse(jwtUtil.isAdminToken(""));
+    public void testVerify_InvalidToken() {
+        assertNull(jwtUtil.verify(null));
+        assertNull(jwtUtil.verify(""));
+        assertNull(jwtUtil.verify("invalid.token.string"));
     }
 
     // ========== cleanToken Tests ==========
@@ -394,9 +345,10 @@ public class JWTUtilTests {
         
         String token = jwtUtil.generateUserToken(user);
         assertTrue(jwtUtil.validateToken(token, false));
-        assertNull(jwtUtil.extractEmail(token, false)); // Email not in JWT claims
-        assertEquals("10", jwtUtil.extractId(token, false));
-        assertEquals("user", jwtUtil.extractTitle(token, false));
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertNull(verified.getClaims().get("email")); // Email not in JWT claims
+        assertEquals("10", verified.getId());
+        assertEquals("user", verified.getTitle());
     }
 
     @Test
@@ -412,9 +364,10 @@ public class JWTUtilTests {
         
         String token = jwtUtil.generateAdminToken(admin);
         assertTrue(jwtUtil.validateToken(token, true));
-        assertTrue(jwtUtil.isAdminToken(token));
-        assertNull(jwtUtil.extractEmail(token, true)); // Email not in JWT claims
-        assertEquals("100", jwtUtil.extractId(token, true));
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertTrue(verified.isAdmin());
+        assertNull(verified.getClaims().get("email")); // Email not in JWT claims
+        assertEquals("100", verified.getId());
     }
 
     @Test
@@ -422,6 +375,6 @@ public class JWTUtilTests {
         String bearerToken = "Bearer " + validUserToken;
         String cleaned = jwtUtil.cleanToken(bearerToken);
         assertTrue(jwtUtil.validateToken(cleaned, false));
-        assertNull(jwtUtil.extractEmail(cleaned, false)); // Email not in JWT claims
+        assertEquals("1", jwtUtil.verify(bearerToken).getId());
     }
 }
@@ -0,0 +1,171 @@
+package com.example.rocketpop.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtKeyringTests {
+
+    private static final String USER_SECRET = "RockertSoftwareRocks2025ThisIsNotSecureEnough";
+    private static final String ADMIN_SECRET = "RocketSSOAdminSecretKey2025InternalUseOnlygibberishasdfasdfasdf";
+
+    @TempDir
+    Path keysDir;
+
+    private String newSecret() {
+        SecretKey key = Jwts.SIG.HS256.key().build();
+        return Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+
+    private void writeKey(String kid, String purpose, String status, String secret) throws Exception {
+        Files.writeString(keysDir.resolve(kid + ".properties"),
+                "purpose=" + purpose + "\nalg=HS256\nstatus=" + status + "\nsecret=" + secret + "\n");
+    }
+
+    private JwtKeyring keyring() {
+        return new JwtKeyring(USER_SECRET, ADMIN_SECRET, "HS256", "", "", false, keysDir.toString(), 0);
+    }
+
+    private String sign(JwtKeyring keyring, boolean isAdmin) {
+        JwtKeyring.KeyEntry key = keyring.getSigningKey(isAdmin);
+        return Jwts.builder()
+                .header().keyId(key.getKid()).and()
+                .claim("id", 1)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(key.getSigningKey())
+                .compact();
+    }
+
+    @Test
+    public void testBuiltinKeysWithoutLocation() {
+        JwtKeyring keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+
+        assertEquals(JwtKeyring.USER_KEY_ID, keyring.getKeyId(false));
+        assertEquals(JwtKeyring.ADMIN_KEY_ID, keyring.getKeyId(true));
+        assertFalse(keyring.verify(sign(keyring, false)).isAdmin());
+        assertTrue(keyring.verify(sign(keyring, true)).isAdmin());
+    }
+
+    @Test
+    public void testActiveFileKeyTakesOverSigning() throws Exception {
+        writeKey("user-2026-10", "user", "active", newSecret());
+        JwtKeyring keyring = keyring();
+
+        String token = sign(keyring, false);
+
+        assertEquals("user-2026-10", keyring.getKeyId(false));
+        assertEquals("user-2026-10", keyring.verify(token).getKeyId());
+    }
+
+    @Test
+    public void testBuiltinKeyStillVerifiesAfterRotation() throws Exception {
+        SecretKey builtin = Keys.hmacShaKeyFor(Decoders.BASE64.decode(USER_SECRET));
+        String oldToken = Jwts.builder()
+                .header().keyId(JwtKeyring.USER_KEY_ID).and()
+                .claim("id", 1)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(builtin)
+                .compact();
+        writeKey("user-2026-10", "user", "active", newSecret());
+
+        JwtKeyring keyring = keyring();
+
+        assertEquals(JwtKeyring.USER_KEY_ID, keyring.verify(oldToken).getKeyId());
+    }
+
+    @Test
+    public void testReloadRotatesWithoutInvalidatingRetiringKeys() throws Exception {
+        String secretA = newSecret();
+        writeKey("user-a", "user", "active", secretA);
+        JwtKeyring keyring = keyring();
+        String tokenA = sign(keyring, false);
+
+        // Rotate: new active key, old key moved to retiring
+        writeKey("user-a", "user", "retiring", secretA);
+        writeKey("user-b", "user", "active", newSecret());
+        keyring.reload();
+
+        assertEquals("user-b", keyring.getKeyId(false));
+        assertEquals("user-a", keyring.verify(tokenA).getKeyId());
+        assertEquals("user-b", keyring.verify(sign(keyring, false)).getKeyId());
+    }
+
+    @Test
+    public void testRemovedKeyNoLongerVerifies() throws Exception {
+        writeKey("user-a", "user", "active", newSecret());
+        JwtKeyring keyring = keyring();
+        String tokenA = sign(keyring, false);
+
+        Files.delete(keysDir.resolve("user-a.properties"));
+        keyring.reload();
+
+        assertEquals(JwtKeyring.USER_KEY_ID, keyring.getKeyId(false));
+        assertThrows(Exception.class, () -> keyring.verify(tokenA));
+    }
+
+    @Test
+    public void testBadFileKeepsPreviousKeys() throws Exception {
+        writeKey("user-a", "user", "active", newSecret());
+        JwtKeyring keyring = keyring();
+
+        Files.writeString(keysDir.resolve("broken.properties"), "purpose=nobody\n");
+        keyring.reload();
+
+        assertEquals("user-a", keyring.getKeyId(false));
+    }
+
+    @Test
+    public void testUserParserRejectsAdminKey() {
+        JwtKeyring keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+        String adminToken = sign(keyring, true);
+
+        assertThrows(Exception.class, () -> keyring.getParser(false).parseSignedClaims(adminToken));
+    }
+
+    @Test
+    public void testEs256WithoutKeysFailsUnlessGenerating() {
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyring(USER_SECRET, ADMIN_SECRET, "ES256", "", "", false, "", 0));
+
+        JwtKeyring keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET, "ES256", "", "", true, "", 0);
+        assertEquals(JwtKeyring.USER_EC_KEY_ID, keyring.getKeyId(false));
+    }
+
+    @Test
+    public void testLegacyAdminTokenWithoutKid() {
+        JwtKeyring keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+        String legacy = Jwts.builder()
+                .claim("id", 1)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(keyring.getKey(true))
+                .compact();
+
+        assertTrue(keyring.verify(legacy).isAdmin());
+        assertEquals(1, keyring.getParser(true).parseSignedClaims(legacy).getPayload().get("id"));
+        assertThrows(Exception.class, () -> keyring.getParser(false).parseSignedClaims(legacy));
+    }
+
+    @Test
+    public void testTokenWithKidIsNotRetriedAsLegacyAdmin() {
+        JwtKeyring keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+        // Claims to be a user key token but is signed with the admin secret
+        String forged = Jwts.builder()
+                .header().keyId(JwtKeyring.USER_KEY_ID).and()
+                .claim("id", 1)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(keyring.getKey(true))
+                .compact();
+
+        assertThrows(Exception.class, () -> keyring.verify(forged));
+    }
+}
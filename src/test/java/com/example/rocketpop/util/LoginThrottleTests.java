@@ -0,0 +1,184 @@
+package com.example.rocketpop.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.rocketpop.model.AuthResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginThrottleTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private LoginThrottle throttle(int usernameBurst, int usernameLockout, int ipBurst, int ipLockout, int maxEntries) {
+        return new LoginThrottle(
+                new LoginThrottle.Limit(usernameBurst, 60, usernameLockout),
+                new LoginThrottle.Limit(ipBurst, 60, ipLockout),
+                300, 600, maxEntries, 0, now::get);
+    }
+
+    private static final AuthResult SUCCESS = new AuthResult.Success(null, "token");
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void testAcquire_BurstThenThrottled() {
+        LoginThrottle throttle = throttle(3, 100, 100, 100, 1000);
+        throttle.record("alice", "10.0.0.9", AuthResult.BAD_PASSWORD);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+        }
+        // 60 per minute refills one token a second
+        assertEquals(1, throttle.acquire("alice", "10.0.0.1"));
+        assertEquals(1, throttle.getRejections());
+
+        advanceSeconds(1);
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+    }
+
+    @Test
+    public void testAcquire_NewEntryIsNotLocked() {
+        // Every read of the clock is a nanosecond later, as System.nanoTime on a busy machine
+        LoginThrottle throttle = new LoginThrottle(
+                new LoginThrottle.Limit(1, 60, 100),
+                new LoginThrottle.Limit(1, 60, 100),
+                300, 600, 1000, 0, now::incrementAndGet);
+
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        assertEquals(0, throttle.acquire("alice", "10.0.0.2"));
+        assertEquals(0, throttle.getRejections());
+    }
+
+    @Test
+    public void testRecord_FailuresSecondsApartStillLockOut() {
+        LoginThrottle throttle = throttle(100, 3, 100, 100, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+            advanceSeconds(1);
+        }
+        assertEquals(1, throttle.getLockouts());
+    }
+
+    @Test
+    public void testAcquire_UsernamesAreCaseInsensitive() {
+        LoginThrottle throttle = throttle(1, 100, 100, 100, 1000);
+        throttle.record("ALICE", "10.0.0.9", AuthResult.BAD_PASSWORD);
+
+        assertEquals(0, throttle.acquire("Alice", "10.0.0.1"));
+        assertTrue(throttle.acquire("alice", "10.0.0.2") > 0);
+    }
+
+    @Test
+    public void testAcquire_AddressThrottledAcrossUsernames() {
+        LoginThrottle throttle = throttle(100, 100, 2, 100, 1000);
+
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+        assertEquals(0, throttle.acquire("bob", "10.0.0.1"));
+        assertTrue(throttle.acquire("carol", "10.0.0.1") > 0);
+        assertEquals(0, throttle.acquire("carol", "10.0.0.2"));
+    }
+
+    @Test
+    public void testRecord_LockoutAfterFailures() {
+        LoginThrottle throttle = throttle(100, 3, 100, 100, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+            throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        }
+        assertEquals(1, throttle.getLockouts());
+        assertEquals(300, throttle.acquire("alice", "10.0.0.1"));
+        // Other users are unaffected
+        assertEquals(0, throttle.acquire("bob", "10.0.0.1"));
+
+        advanceSeconds(300);
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+    }
+
+    @Test
+    public void testRecord_SuccessClearsFailures() {
+        LoginThrottle throttle = throttle(100, 3, 100, 100, 1000);
+
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        throttle.record("alice", "10.0.0.1", SUCCESS);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+
+        assertEquals(0, throttle.getLockouts());
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+    }
+
+    @Test
+    public void testRecord_FailuresDecay() {
+        LoginThrottle throttle = throttle(100, 3, 100, 100, 1000);
+
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        // Two half lives later the score of 2 has decayed to 0.5, so two more failures stay under 3
+        advanceSeconds(1200);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+
+        assertEquals(0, throttle.getLockouts());
+        assertEquals(0, throttle.acquire("alice", "10.0.0.1"));
+    }
+
+    @Test
+    public void testExpireIdle_RemovesRecoveredEntries() {
+        LoginThrottle throttle = throttle(5, 100, 100, 100, 1000);
+
+        throttle.acquire("alice", "10.0.0.1");
+        throttle.record("alice", "10.0.0.1", AuthResult.BAD_PASSWORD);
+        assertEquals(2, throttle.getEntryCount());
+
+        // Bucket still refilling and a fresh failure, nothing to expire yet
+        throttle.expireIdle();
+        assertEquals(2, throttle.getEntryCount());
+
+        advanceSeconds(TimeUnit.HOURS.toSeconds(2));
+        throttle.expireIdle();
+        assertEquals(0, throttle.getEntryCount());
+    }
+
+    @Test
+    public void testBoundedEntries_OverflowIsSharedNotUnlimited() {
+        // One entry per stripe, so most of these keys land in their stripe's overflow entry
+        LoginThrottle throttle = throttle(1, 100, 1_000_000, 100, 1);
+
+        int allowed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            throttle.record("user" + i, "10.0.0.1", AuthResult.BAD_PASSWORD);
+            if (throttle.acquire("user" + i, "10.0.0.1") == 0) {
+                allowed++;
+            }
+        }
+
+        assertTrue(throttle.getEntryCount() <= 128, "entries: " + throttle.getEntryCount());
+        // At most one tracked key and one shared overflow bucket per stripe get through
+        assertTrue(allowed <= 128, "allowed: " + allowed);
+    }
+
+    @Test
+    public void testRecord_UnknownUserCountsAgainstAddressOnly() {
+        LoginThrottle throttle = throttle(1, 3, 100, 3, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            throttle.acquire("nobody" + i, "10.0.0.1");
+            throttle.record("nobody" + i, "10.0.0.1", AuthResult.UNKNOWN_USER);
+        }
+
+        // Only the address is tracked, and it is locked out
+        assertEquals(1, throttle.getEntryCount());
+        assertTrue(throttle.acquire("alice", "10.0.0.1") > 0);
+        assertEquals(0, throttle.acquire("alice", "10.0.0.2"));
+    }
+}
@@ -7,7 +7,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -314,6 +319,7 @@ public class PasswordHasherTests {
         
         // Set invalid public key
         ReflectionTestUtils.setField(passwordHasher, "publicKeyString", "InvalidKey");
+        passwordHasher.loadKeys();
         
         // Act
         String result = passwordHasher.rsaEncrypt(plaintext);
@@ -323,6 +329,7 @@ public class PasswordHasherTests {
         
         // Cleanup - restore original key
         ReflectionTestUtils.setField(passwordHasher, "publicKeyString", originalPublicKey);
+        passwordHasher.loadKeys();
     }
 
     @Test
@@ -333,6 +340,7 @@ public class PasswordHasherTests {
         
         // Set invalid private key
         ReflectionTestUtils.setField(passwordHasher, "privateKeyString", "InvalidKey");
+        passwordHasher.loadKeys();
         
         // Act
         String result = passwordHasher.rsaDecrypt(validCiphertext);
@@ -342,5 +350,194 @@ public class PasswordHasherTests {
         
         // Cleanup - restore original key
         ReflectionTestUtils.setField(passwordHasher, "privateKeyString", originalPrivateKey);
+        passwordHasher.loadKeys();
+    }
+
+    @Test
+    public void testRsaDecrypt_ConcurrentCallers() throws Exception {
+        // Arrange - ciphers are pooled, so concurrent calls must not share one
+        String encrypted = passwordHasher.rsaEncrypt("concurrentPassword");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(() -> passwordHasher.rsaDecrypt(encrypted)));
+        }
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("concurrentPassword", result.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRsaDecrypt_RecoversAfterBadCiphertext() {
+        // Arrange - a failed decrypt must not poison a pooled cipher
+        String encrypted = passwordHasher.rsaEncrypt("afterFailure");
+
+        // Act
+        passwordHasher.rsaDecrypt(Base64.getEncoder().encodeToString("corrupted".getBytes()));
+        String decrypted = passwordHasher.rsaDecrypt(encrypted);
+
+        // Assert
+        assertEquals("afterFailure", decrypted);
+    }
+
+    @Test
+    public void testEncode_MatchesAndIsSelfDescribing() {
+        // Act
+        String encoded = passwordHasher.encode("encodedPassword1");
+
+        // Assert
+        assertTrue(encoded.startsWith("$pbkdf2-sha256$i="), "Should be a PBKDF2 PHC string");
+        assertTrue(passwordHasher.matches("encodedPassword1", encoded, ""));
+        assertFalse(passwordHasher.matches("encodedPassword2", encoded, ""));
+        assertFalse(passwordHasher.needsRehash(encoded));
+    }
+
+    @Test
+    public void testEncode_FreshSaltEachTime() {
+        // Act
+        String encoded1 = passwordHasher.encode("samePassword");
+        String encoded2 = passwordHasher.encode("samePassword");
+
+        // Assert
+        assertNotEquals(encoded1, encoded2);
+        assertTrue(passwordHasher.matches("samePassword", encoded2, ""));
+    }
+
+    @Test
+    public void testMatches_LegacyHash() {
+        // Arrange
+        String legacy = passwordHasher.hashPassword("legacyPassword", testSalt);
+
+        // Act & Assert
+        assertTrue(passwordHasher.matches("legacyPassword", legacy, testSalt));
+        assertFalse(passwordHasher.matches("wrongPassword", legacy, testSalt));
+        assertTrue(passwordHasher.needsRehash(legacy), "Legacy digests should be upgraded");
+    }
+
+    @Test
+    public void testMatches_NullAndMalformed() {
+        // Act & Assert
+        assertFalse(passwordHasher.matches(null, passwordHasher.encode("x"), ""));
+        assertFalse(passwordHasher.matches("x", null, ""));
+        assertFalse(passwordHasher.matches("x", "$pbkdf2-sha256$broken", ""));
+        assertFalse(passwordHasher.matches("x", "$unknown$a$b$c", ""));
+        assertTrue(passwordHasher.needsRehash("$pbkdf2-sha256$broken"));
+    }
+
+    @Test
+    public void testNeedsRehash_OlderParameters() {
+        // Arrange - a hash from before calibration raised the cost
+        String older = new Pbkdf2PasswordHash(Pbkdf2PasswordHash.MIN_ITERATIONS - 1).hash("olderPassword", new byte[16]);
+
+        // Act & Assert
+        assertTrue(passwordHasher.matches("olderPassword", older, ""), "Old parameters should still verify");
+        assertTrue(passwordHasher.needsRehash(older));
+    }
+
+    @Test
+    public void testNeedsRehash_CostlierParametersKept() {
+        // Arrange - a hash from an instance that calibrated higher
+        Pbkdf2PasswordHash current = (Pbkdf2PasswordHash) passwordHasher.getAlgorithm();
+        String costlier = new Pbkdf2PasswordHash(current.getIterations() + 1).hash("costlierPassword", new byte[16]);
+
+        // Act & Assert
+        assertTrue(passwordHasher.matches("costlierPassword", costlier, ""));
+        assertFalse(passwordHasher.needsRehash(costlier));
+    }
+
+    @Test
+    public void testArgon2id_RoundTrip() {
+        // Arrange - small memory so the test stays quick
+        Argon2idPasswordHash argon2 = new Argon2idPasswordHash(1024, 1, 1);
+
+        // Act
+        String encoded = argon2.hash("argonPassword", new byte[16]);
+
+        // Assert
+        assertTrue(encoded.startsWith("$argon2id$v=19$m=1024,t=1,p=1$"));
+        assertTrue(argon2.matches("argonPassword", encoded));
+        assertFalse(argon2.matches("otherPassword", encoded));
+        assertFalse(argon2.isWeaker(StoredHash.parse(encoded)));
+        assertTrue(new Argon2idPasswordHash(1024, 2, 1).isWeaker(StoredHash.parse(encoded)));
+        // PasswordHasher dispatches on the id, whichever algorithm is configured
+        assertTrue(passwordHasher.matches("argonPassword", encoded, ""));
+        assertTrue(passwordHasher.needsRehash(encoded));
+    }
+
+    @Test
+    public void testCalibrate_KeepsMinimumCost() {
+        // Arrange
+        Pbkdf2PasswordHash pbkdf2 = new Pbkdf2PasswordHash();
+
+        // Act - a budget no machine can meet
+        pbkdf2.calibrate(0);
+
+        // Assert
+        assertEquals(Pbkdf2PasswordHash.MIN_ITERATIONS, pbkdf2.getIterations());
+    }
+
+    @Test
+    public void testCalibrate_RoundsToPowerOfTwo() {
+        // Arrange
+        Pbkdf2PasswordHash pbkdf2 = new Pbkdf2PasswordHash();
+
+        // Act
+        pbkdf2.calibrate(50);
+
+        // Assert - a coarse step, so a slightly different timing gives the same cost
+        int iterations = pbkdf2.getIterations();
+        assertTrue(iterations == Pbkdf2PasswordHash.MIN_ITERATIONS || Integer.bitCount(iterations) == 1,
+                "Calibrated to " + iterations);
+    }
+
+    @Test
+    public void testMatches_NonAsciiPasswords() {
+        // Arrange - matches encodes UTF-8 itself, it must agree with String.getBytes and the JDK's PBKDF2
+        String password = "p\u00e4ssw\u00f6rd \u20ac \ud83d\ude80";
+        String legacy = passwordHasher.hashPassword(password, testSalt);
+        String encoded = passwordHasher.encode(password);
+
+        // Act & Assert
+        assertTrue(passwordHasher.matches(password, legacy, testSalt));
+        assertTrue(passwordHasher.matches(password, encoded, ""));
+        assertFalse(passwordHasher.matches("p\u00e4ssw\u00f6rd \u20ac", encoded, ""));
+    }
+
+    @Test
+    public void testMatches_LegacySaltChangeIsNotCached() {
+        // Arrange
+        String legacy = passwordHasher.hashPassword("saltedPassword", testSalt);
+        assertTrue(passwordHasher.matches("saltedPassword", legacy, testSalt));
+
+        // Act & Assert - the decoded digest is cached, the salt it was made with must still be checked
+        assertFalse(passwordHasher.matches("saltedPassword", legacy, passwordHasher.getRandomSalt()));
+        assertTrue(passwordHasher.matches("saltedPassword", legacy, testSalt));
+    }
+
+    @Test
+    public void testMatches_ConcurrentCallers() throws Exception {
+        // Arrange - digests and buffers are per thread
+        String legacy = passwordHasher.hashPassword("threadPassword", testSalt);
+        String encoded = new Pbkdf2PasswordHash(Pbkdf2PasswordHash.MIN_ITERATIONS).hash("threadPassword", new byte[16]);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            String password = i % 2 == 0 ? "threadPassword" : "threadPassword" + i;
+            String stored = i % 4 < 2 ? legacy : encoded;
+            results.add(executor.submit(() -> passwordHasher.matches(password, stored, testSalt)));
+        }
+
+        // Assert
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 2 == 0, results.get(i).get(), "attempt " + i);
+        }
+        executor.shutdown();
     }
 }
@@ -0,0 +1,96 @@
+package com.example.rocketpop.util;
+
+import com.example.rocketpop.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenMinterTests {
+
+    private static final String USER_SECRET = "RockertSoftwareRocks2025ThisIsNotSecureEnough";
+    private static final String ADMIN_SECRET = "RocketSSOAdminSecretKey2025InternalUseOnlygibberishasdfasdfasdf";
+    // 64 base64 characters decode to 48 bytes, the smallest HS384 key
+    private static final String LONG_ADMIN_SECRET = ADMIN_SECRET + "x";
+
+    private final TokenMinter minter = new TokenMinter();
+    private JwtKeyring keyring;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        keyring = new JwtKeyring(USER_SECRET, ADMIN_SECRET);
+        user = new User("testuser", "hash", "salt");
+        user.setId(42);
+        user.setFirstName("Zoë \"Quote\" \\ 😀");
+        user.setLastName("O'Neil\n");
+        user.setTitle("manager");
+        user.setDepartment(3);
+        user.setLocation(7);
+    }
+
+    @Test
+    public void testMintUserToken_ParsesWithJjwt() {
+        long now = System.currentTimeMillis();
+        String token = minter.mintUserToken(user, JwtKeyring.USER_KEY_ID, keyring.getKey(false), now, now + 60000);
+
+        Jws<Claims> jws = keyring.getParser(false).parseSignedClaims(token);
+        Claims claims = jws.getPayload();
+
+        assertEquals(JwtKeyring.USER_KEY_ID, jws.getHeader().getKeyId());
+        assertEquals("Auth Service", claims.getIssuer());
+        assertEquals(42, ((Number) claims.get("id")).intValue());
+        assertEquals("Zoë \"Quote\" \\ 😀", claims.get("first_name"));
+        assertEquals("O'Neil\n", claims.get("last_name"));
+        assertEquals("7", claims.get("location"));
+        assertEquals("3", claims.get("department"));
+        assertEquals("manager", claims.get("title"));
+        assertEquals("Zoë \"Quote\" \\ 😀 O'Neil\n", claims.getSubject());
+        assertEquals(now / 1000, claims.getIssuedAt().getTime() / 1000);
+        assertEquals((now + 60000) / 1000, claims.getExpiration().getTime() / 1000);
+    }
+
+    @Test
+    public void testMintAdminToken_UsesHs384ForLongKey() {
+        long now = System.currentTimeMillis();
+        user.setTitle("admin");
+        JwtKeyring longKeyring = new JwtKeyring(USER_SECRET, LONG_ADMIN_SECRET);
+        String token = minter.mintAdminToken(user, JwtKeyring.ADMIN_KEY_ID, longKeyring.getKey(true), now, now + 60000);
+
+        Jws<Claims> jws = longKeyring.getParser(true).parseSignedClaims(token);
+
+        assertEquals("HS384", jws.getHeader().getAlgorithm());
+        assertEquals(7, ((Number) jws.getPayload().get("location")).intValue());
+        assertEquals("admin", jws.getPayload().get("title"));
+    }
+
+    @Test
+    public void testMint_NullClaimsAreOmitted() {
+        long now = System.currentTimeMillis();
+        User sparse = new User("sparse", "hash", "salt");
+        String token = minter.mintUserToken(sparse, JwtKeyring.USER_KEY_ID, keyring.getKey(false), now, now + 60000);
+
+        Claims claims = keyring.getParser(false).parseSignedClaims(token).getPayload();
+
+        assertFalse(claims.containsKey("title"));
+        assertFalse(claims.containsKey("first_name"));
+        assertEquals("null null", claims.getSubject());
+    }
+
+    @Test
+    public void testMint_ReusedBuffersDoNotLeakBetweenTokens() {
+        long now = System.currentTimeMillis();
+        minter.mintUserToken(user, JwtKeyring.USER_KEY_ID, keyring.getKey(false), now, now + 60000);
+        User other = new User("other", "hash", "salt");
+        other.setId(1);
+        String token = minter.mintUserToken(other, JwtKeyring.USER_KEY_ID, keyring.getKey(false), now, now + 60000);
+
+        Claims claims = Jwts.parser().verifyWith(keyring.getKey(false)).build().parseSignedClaims(token).getPayload();
+
+        assertEquals(1, ((Number) claims.get("id")).intValue());
+        assertNull(claims.get("last_name"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.rocketpop.util;
+
+import com.example.rocketpop.model.User;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserExportWriterTests {
+
+    private User user(int id, String username) {
+        User user = new User(username, "secrethash", "secretsalt");
+        user.setId(id);
+        user.setFirstName("First");
+        user.setEmail(username + "@example.com");
+        user.setDepartment(3);
+        return user;
+    }
+
+    private String export(UserExportWriter.Format format, User... users) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserExportWriter writer = UserExportWriter.open(format, out);
+        for (User user : users) {
+            writer.write(user);
+        }
+        writer.close();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        JSONArray users = new JSONArray(export(UserExportWriter.Format.JSON, user(1, "alice"), user(2, "bob")));
+
+        assertEquals(2, users.length());
+        assertEquals("alice", users.getJSONObject(0).getString("username"));
+        assertEquals(3, users.getJSONObject(0).getInt("department"));
+        assertEquals(2, users.getJSONObject(1).getInt("id"));
+        assertFalse(users.getJSONObject(0).has("password"));
+        assertFalse(users.getJSONObject(0).has("salt"));
+    }
+
+    @Test
+    public void testJson_Empty() throws IOException {
+        assertEquals(0, new JSONArray(export(UserExportWriter.Format.JSON)).length());
+    }
+
+    @Test
+    public void testNdjson_OneObjectPerLine() throws IOException {
+        String body = export(UserExportWriter.Format.NDJSON, user(1, "alice"), user(2, "bob"));
+
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("alice", new JSONObject(lines[0]).getString("username"));
+        assertEquals("bob", new JSONObject(lines[1]).getString("username"));
+        assertEquals("", export(UserExportWriter.Format.NDJSON));
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        String[] lines = export(UserExportWriter.Format.CSV, user(1, "alice")).split("\r\n");
+
+        assertEquals(2, lines.length);
+        assertEquals("id,username,firstName,lastName,title,department,email,country,city,location", lines[0]);
+        assertEquals("1,alice,First,,,3,alice@example.com,,,0", lines[1]);
+        assertFalse(lines[1].contains("secret"));
+    }
+
+    @Test
+    public void testCsv_QuotesAndFormulas() throws IOException {
+        User user = user(1, "alice");
+        user.setFirstName("Smith, \"Al\"");
+        user.setLastName("=HYPERLINK(\"x\")");
+        String line = export(UserExportWriter.Format.CSV, user).split("\r\n")[1];
+
+        assertTrue(line.contains(",\"Smith, \"\"Al\"\"\","));
+        assertTrue(line.contains(",\"'=HYPERLINK(\"\"x\"\")\","));
+    }
+
+    @Test
+    public void testParseFormat() {
+        assertEquals(UserExportWriter.Format.NDJSON, UserExportWriter.Format.parse("ndjson"));
+        assertEquals(UserExportWriter.Format.CSV, UserExportWriter.Format.parse("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> UserExportWriter.Format.parse("xml"));
+    }
+}
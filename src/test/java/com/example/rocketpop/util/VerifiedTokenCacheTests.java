@@ -0,0 +1,78 @@
+package com.example.rocketpop.util;
+
+import com.example.rocketpop.model.VerifiedToken;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedTokenCacheTests {
+
+    private VerifiedToken tokenFor(int id, long expiresInMillis) {
+        return new VerifiedToken(
+                Jwts.claims()
+                        .add("id", id)
+                        .expiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                        .build(),
+                VerifiedToken.Role.USER,
+                JwtKeyring.USER_KEY_ID);
+    }
+
+    @Test
+    public void testGet_MissThenHit() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        VerifiedToken token = tokenFor(1, 60000);
+
+        assertNull(cache.get("a.b.c"));
+        cache.put("a.b.c", token);
+        assertSame(token, cache.get("a.b.c"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testGet_ExpiredEntryIsMiss() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("a.b.c", tokenFor(1, -1000));
+
+        assertNull(cache.get("a.b.c"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPut_EvictsWhenFull() {
+        // 16 segments of one entry each
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("token" + i, tokenFor(i, 60000));
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictions() >= 1000 - 16);
+    }
+
+    @Test
+    public void testInvalidate() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("a.b.c", tokenFor(1, 60000));
+
+        cache.invalidate("a.b.c");
+
+        assertNull(cache.get("a.b.c"));
+    }
+
+    @Test
+    public void testInvalidateIf_ByUser() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("one", tokenFor(1, 60000));
+        cache.put("two", tokenFor(2, 60000));
+
+        cache.invalidateIf(token -> "1".equals(token.getId()));
+
+        assertNull(cache.get("one"));
+        assertNotNull(cache.get("two"));
+    }
+}
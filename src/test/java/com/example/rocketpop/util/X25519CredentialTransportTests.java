@@ -0,0 +1,88 @@
+package com.example.rocketpop.util;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class X25519CredentialTransportTests {
+
+    private final X25519CredentialTransport transport = new X25519CredentialTransport("", "");
+
+    @Test
+    public void testEncryptDecrypt_RoundTrip() {
+        String ciphertext = transport.encrypt("secretPassword123");
+
+        assertTrue(ciphertext.startsWith("x25519."));
+        assertTrue(transport.accepts(ciphertext));
+        assertEquals("secretPassword123", transport.decrypt(ciphertext));
+    }
+
+    @Test
+    public void testEncryptDecrypt_Unicode() {
+        assertEquals("パスワード123", transport.decrypt(transport.encrypt("パスワード123")));
+    }
+
+    @Test
+    public void testEncrypt_FreshEphemeralKeyEachTime() {
+        assertNotEquals(transport.encrypt("samePassword"), transport.encrypt("samePassword"));
+    }
+
+    @Test
+    public void testDecrypt_TamperedCiphertext() {
+        String ciphertext = transport.encrypt("secretPassword123");
+        char last = ciphertext.charAt(ciphertext.length() - 2);
+        String tampered = ciphertext.substring(0, ciphertext.length() - 2) + (last == 'A' ? 'B' : 'A')
+                + ciphertext.charAt(ciphertext.length() - 1);
+
+        assertNull(transport.decrypt(tampered));
+    }
+
+    @Test
+    public void testDecrypt_OtherServerKey() {
+        X25519CredentialTransport other = new X25519CredentialTransport("", "");
+
+        assertNull(transport.decrypt(other.encrypt("secretPassword123")));
+    }
+
+    @Test
+    public void testDecrypt_Malformed() {
+        assertNull(transport.decrypt("x25519.abc"));
+        assertNull(transport.decrypt("x25519.a.b.c"));
+    }
+
+    @Test
+    public void testConfiguredKeys() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("X25519").generateKeyPair();
+        Base64.Encoder encoder = Base64.getEncoder();
+        X25519CredentialTransport configured = new X25519CredentialTransport(
+                encoder.encodeToString(keyPair.getPrivate().getEncoded()),
+                encoder.encodeToString(keyPair.getPublic().getEncoded()));
+
+        Map<String, Object> description = configured.describe();
+        byte[] encoded = keyPair.getPublic().getEncoded();
+        byte[] raw = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+
+        assertEquals("X25519", description.get("scheme"));
+        assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(raw), description.get("publicKey"));
+        assertEquals("password", configured.decrypt(configured.encrypt("password")));
+    }
+
+    @Test
+    public void testInvalidConfiguredKeys() {
+        assertThrows(IllegalStateException.class, () -> new X25519CredentialTransport("notakey", "notakey"));
+    }
+
+    @Test
+    public void testAdvertisedWithoutKeysFailsUnlessGenerating() {
+        assertThrows(IllegalStateException.class, () -> new X25519CredentialTransport("X25519", "", "", false));
+
+        assertNotNull(new X25519CredentialTransport("X25519", "", "", true).describe().get("publicKey"));
+        assertNotNull(new X25519CredentialTransport("RSA", "", "", false).describe().get("publicKey"));
+    }
+}